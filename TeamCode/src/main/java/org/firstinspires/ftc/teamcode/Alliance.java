@@ -0,0 +1,39 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+/*
+ * Which alliance the robot is on, and so which goal it shoots at.
+ *
+ *     Alliance alliance = Alliance.last();      // during init; BLUE until one has been picked
+ *     ...                                       // let the driver change it before start
+ *     alliance.remember();
+ *     vision.setGoalTag(alliance.goalTag);
+ *
+ * The choice is kept on the SDK blackboard, like Handoff, so it is picked once per event instead of in
+ * every OpMode.  DECODE goal tags: 20 on the blue goal, 24 on the red one.
+ */
+public enum Alliance {
+    BLUE(20),
+    RED(24);
+
+    static final String KEY = "prometheus.alliance";
+
+    /** AprilTag id on this alliance's goal. */
+    public final int goalTag;
+
+    Alliance(int goalTag) {
+        this.goalTag = goalTag;
+    }
+
+    /** The alliance picked last, or BLUE if none has been. */
+    public static Alliance last() {
+        Object value = OpMode.blackboard.get(KEY);
+        return value instanceof Alliance ? (Alliance) value : BLUE;
+    }
+
+    /** Keep this choice for the OpModes that follow. */
+    public void remember() {
+        OpMode.blackboard.put(KEY, this);
+    }
+}
@@ -0,0 +1,216 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.util.Size;
+
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.WebcamName;
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.Pose3D;
+import org.firstinspires.ftc.robotcore.external.navigation.Position;
+import org.firstinspires.ftc.robotcore.external.navigation.YawPitchRollAngles;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+
+/*
+ * AprilTag robot poses from the webcam, set up as in ConceptAprilTagLocalization.
+ *
+ * The VisionPortal runs the detector on its own threads.  readOn() adds a SubsystemScheduler task that
+ * collects new detections, keeps the best field tag (the closest one with a robot pose; the Obelisk tags
+ * only say which motif is in play) and publishes it through a TripleBuffer.  The control loop calls
+ * update() to pick up the newest fix, so it never waits on the camera:
+ *
+ *     if (vision.update()) {
+ *         AprilTagVision.Fix fix = vision.fix();
+ *         localizer.addVisionPose(fix.x, fix.y, fix.heading, fix.range, fix.captureNanos);
+ *         if (fix.goalSeen) {
+ *             turret.addVisionBearing(fix.goalBearing, fix.captureNanos, sensors);
+ *         }
+ *     }
+ *
+ * Any field tag will do for the pose, but only our own goal's tag is something to shoot at; the nearest
+ * tag may well be the other alliance's goal.  So the goal tag set with setGoalTag() (Alliance.goalTag) is
+ * reported separately, in the goal fields, whenever it is in the frame.
+ *
+ * Fixes carry the frame's capture time (System.nanoTime()), which is usually 50-100 ms before the fix
+ * reaches the loop; Localizer uses it to apply the correction where the robot was at the time.
+ *
+ * Every detection list also goes to a VisionTuner, which adjusts decimation and the camera exposure while
+ * the match runs and measures FPS and latency (tuner(), and dump() for the latency histogram).
+ *
+ * If the configuration has no webcam named "Webcam 1", isAvailable() is false and nothing else happens.
+ */
+public class AprilTagVision {
+
+    static final String WEBCAM_NAME = "Webcam 1";
+
+    // Camera position on the robot (inches: x right, y forward, z up) and orientation (degrees), as in
+    // ConceptAprilTagLocalization.  Measure these on the robot.
+    static final double CAMERA_X = 0, CAMERA_Y = 0, CAMERA_Z = 0;
+    static final double CAMERA_YAW = 0, CAMERA_PITCH = -90, CAMERA_ROLL = 0;
+
+    // Capture resolution; needs a calibration for the webcam at this size
+    static final int CAMERA_WIDTH = 640, CAMERA_HEIGHT = 480;
+
+    /** One robot pose from a tag, and the goal tag if it was in the same frame. */
+    public static final class Fix {
+        public int id;
+        public double x, y;        // Field position, inches
+        public double heading;     // Field heading, radians, counter-clockwise
+        public double range;       // Camera to tag, inches
+        public long captureNanos;  // When the frame was captured
+        public int tagsSeen;       // Field tags in the frame
+
+        public boolean goalSeen;   // Our goal's tag is in the frame; the goal fields are only valid then
+        public double goalRange;   // Camera to goal tag, inches
+        public double goalBearing; // Goal tag direction from the camera, radians, counter-clockwise
+    }
+
+    private final AprilTagProcessor aprilTag;
+    private final VisionPortal visionPortal;
+    private final VisionTuner tuner;
+
+    private TripleBuffer<Fix> fixes;
+    private volatile int goalTag = Alliance.BLUE.goalTag;
+
+    public AprilTagVision(HardwareMap hardwareMap) {
+        WebcamName webcam = hardwareMap.tryGet(WebcamName.class, WEBCAM_NAME);
+        if (webcam == null) {
+            aprilTag = null;
+            visionPortal = null;
+            tuner = null;
+            return;
+        }
+        aprilTag = new AprilTagProcessor.Builder()
+                .setCameraPose(
+                        new Position(DistanceUnit.INCH, CAMERA_X, CAMERA_Y, CAMERA_Z, 0),
+                        new YawPitchRollAngles(AngleUnit.DEGREES, CAMERA_YAW, CAMERA_PITCH, CAMERA_ROLL, 0))
+                .setOutputUnits(DistanceUnit.INCH, AngleUnit.RADIANS)
+                .build();
+        visionPortal = new VisionPortal.Builder()
+                .setCamera(webcam)
+                .setCameraResolution(new Size(CAMERA_WIDTH, CAMERA_HEIGHT))
+                .addProcessor(aprilTag)
+                .build();
+        tuner = new VisionTuner(visionPortal, aprilTag);
+    }
+
+    public boolean isAvailable() {
+        return visionPortal != null;
+    }
+
+    public AprilTagProcessor processor() {
+        return aprilTag;
+    }
+
+    public VisionPortal portal() {
+        return visionPortal;
+    }
+
+    /** FPS, latency and decimation; null without a camera. */
+    public VisionTuner tuner() {
+        return tuner;
+    }
+
+    /** The tag on the goal to aim at, e.g. Alliance.goalTag.  May change until the scheduler is started. */
+    public void setGoalTag(int id) {
+        goalTag = id;
+    }
+
+    public int getGoalTag() {
+        return goalTag;
+    }
+
+    /**
+     * Collect detections on a scheduler task at rateHz (at least the camera frame rate).  Does nothing
+     * without a camera.  Call during init, before the scheduler is started.
+     */
+    public void readOn(SubsystemScheduler scheduler, double rateHz) {
+        if (!isAvailable()) {
+            return;
+        }
+        fixes = new TripleBuffer<>(Fix::new);
+        scheduler.addTask("apriltag", rateHz, this::collect);
+    }
+
+    /**
+     * Pick up the newest fix, if there is one since the last call.  Control loop only.
+     * @return true if fix() is new
+     */
+    public boolean update() {
+        return fixes != null && fixes.update();
+    }
+
+    /** The fix picked up by the last update(). */
+    public Fix fix() {
+        return fixes.read();
+    }
+
+    /** Stop the camera.  Call when the OpMode ends. */
+    public void close() {
+        if (visionPortal != null) {
+            visionPortal.close();
+        }
+    }
+
+    /**
+     * Write the capture-to-detection latency histogram to /sdcard/FIRST/data/vision_[name].txt.  Call after
+     * the scheduler has stopped.
+     */
+    public void dump(String name) {
+        if (tuner == null) {
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        LoopProfiler.appendHistogram(out, "latency", tuner.latencyHistogram());
+
+        DataFile.write("vision_" + name + ".txt", out, "AprilTagVision");
+    }
+
+    // Runs on the scheduler thread
+    private void collect() {
+        List<AprilTagDetection> detections = aprilTag.getFreshDetections();
+        if (detections == null) {
+            return;
+        }
+        tuner.onFrame(detections, System.nanoTime());
+
+        AprilTagDetection best = null;
+        AprilTagDetection goal = null;
+        int tagsSeen = 0;
+        for (AprilTagDetection detection : detections) {
+            if (detection.metadata == null || detection.robotPose == null
+                    || detection.metadata.name.contains("Obelisk")) {
+                continue;
+            }
+            tagsSeen++;
+            if (best == null || detection.ftcPose.range < best.ftcPose.range) {
+                best = detection;
+            }
+            if (detection.id == goalTag) {
+                goal = detection;
+            }
+        }
+        if (best == null) {
+            return;
+        }
+
+        Pose3D pose = best.robotPose;
+        Fix fix = fixes.writeBuffer();
+        fix.id = best.id;
+        fix.x = pose.getPosition().x;
+        fix.y = pose.getPosition().y;
+        fix.heading = pose.getOrientation().getYaw(AngleUnit.RADIANS);
+        fix.range = best.ftcPose.range;
+        fix.captureNanos = best.frameAcquisitionNanoTime;
+        fix.tagsSeen = tagsSeen;
+        fix.goalSeen = goal != null;
+        fix.goalRange = goal != null ? goal.ftcPose.range : 0;
+        fix.goalBearing = goal != null ? goal.ftcPose.bearing : 0;
+        fixes.publish();
+    }
+}
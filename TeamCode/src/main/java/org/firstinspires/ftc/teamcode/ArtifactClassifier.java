@@ -0,0 +1,149 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Classifies the artifact under the ball sensor as GREEN, PURPLE or NONE.
+ *
+ * Raw counts depend on distance and lighting, so each reading is converted to hue / saturation
+ * (which only depend on the ratios between channels) and looked up in a table of hue bins.  The table is
+ * filled from the hue ranges in Calibration, which can be re-measured with setHueRange() without touching
+ * the classification code.  A reading is only trusted when the sensor saw enough light and colour; anything
+ * else is NONE.
+ *
+ * The result only changes after DEBOUNCE_SAMPLES identical readings in a row, so a ball sliding past the
+ * sensor or a reflection does not flip it.  Readings are only taken when the hardware actually read the
+ * sensor this cycle (HardwareSnapshot.colorValid()), which PrometheusDriver limits to cycles where the
+ * spindexer is settled on a slot.
+ */
+public class ArtifactClassifier {
+
+    // Hue table resolution
+    static final int HUE_BIN_DEGREES = 5;
+    static final int HUE_BINS = 360 / HUE_BIN_DEGREES;
+
+    static final int DEBOUNCE_SAMPLES = 3;
+
+    private final ArtifactColor[] hueTable = new ArtifactColor[HUE_BINS];
+
+    // Anything dimmer or greyer than this is treated as an empty slot
+    private final int minBrightness;
+    private final double minSaturation;
+
+    private ArtifactColor stable = ArtifactColor.NONE;
+    private ArtifactColor candidate = ArtifactColor.NONE;
+    private int candidateCount = 0;
+
+    // Last reading, kept for telemetry
+    private double hue = 0, saturation = 0;
+
+    public ArtifactClassifier(Calibration calibration) {
+        minBrightness = (int) calibration.minBrightness;
+        minSaturation = calibration.minSaturation;
+        for (int i = 0; i < HUE_BINS; i++) {
+            hueTable[i] = ArtifactColor.NONE;
+        }
+        setHueRange(ArtifactColor.GREEN, calibration.greenHueMin, calibration.greenHueMax);
+        setHueRange(ArtifactColor.PURPLE, calibration.purpleHueMin, calibration.purpleHueMax);
+    }
+
+    /**
+     * Map every hue bin between min and max (degrees, may wrap through 0) to the given color.
+     */
+    public void setHueRange(ArtifactColor color, double min, double max) {
+        for (int i = 0; i < HUE_BINS; i++) {
+            if (hueTable[i] == color) {
+                hueTable[i] = ArtifactColor.NONE;
+            }
+        }
+        for (int i = 0; i < HUE_BINS; i++) {
+            double center = (i + 0.5) * HUE_BIN_DEGREES;
+            boolean inside = min <= max ? (center >= min && center <= max) : (center >= min || center <= max);
+            if (inside) {
+                hueTable[i] = color;
+            }
+        }
+    }
+
+    /**
+     * Feed this cycle's sensor data.  Cycles where the sensor was not read are ignored.
+     * @return the debounced classification
+     */
+    public ArtifactColor update(HardwareSnapshot sensors) {
+        if (sensors.colorValid()) {
+            accept(classify(sensors.red(), sensors.green(), sensors.blue()));
+        }
+        return stable;
+    }
+
+    /**
+     * Forget the current result and any partial debounce, e.g. when a new slot is moved under the sensor.
+     */
+    public void restart() {
+        stable = ArtifactColor.NONE;
+        candidate = ArtifactColor.NONE;
+        candidateCount = 0;
+    }
+
+    /** The debounced classification. */
+    public ArtifactColor getColor() {
+        return stable;
+    }
+
+    public double getHue() {
+        return hue;
+    }
+
+    public double getSaturation() {
+        return saturation;
+    }
+
+    /**
+     * Classify a single reading, without debouncing.
+     */
+    ArtifactColor classify(int r, int g, int b) {
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        if (r + g + b < minBrightness || max == 0) {
+            saturation = 0;
+            return ArtifactColor.NONE;
+        }
+
+        double delta = max - min;
+        saturation = delta / max;
+        if (saturation < minSaturation) {
+            return ArtifactColor.NONE;
+        }
+
+        double h;
+        if (max == r) {
+            h = 60 * (((g - b) / delta) % 6);
+        } else if (max == g) {
+            h = 60 * (((b - r) / delta) + 2);
+        } else {
+            h = 60 * (((r - g) / delta) + 4);
+        }
+        if (h < 0) {
+            h += 360;
+        }
+        hue = h;
+
+        int bin = (int) (h / HUE_BIN_DEGREES);
+        if (bin >= HUE_BINS) {
+            bin = HUE_BINS - 1;
+        }
+        return hueTable[bin];
+    }
+
+    private void accept(ArtifactColor reading) {
+        if (reading == candidate) {
+            if (candidateCount < DEBOUNCE_SAMPLES) {
+                candidateCount++;
+            }
+        } else {
+            candidate = reading;
+            candidateCount = 1;
+        }
+        if (candidateCount >= DEBOUNCE_SAMPLES) {
+            stable = candidate;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * What the ball sensor can see in a spindexer slot.
+ */
+public enum ArtifactColor {
+    NONE,
+    GREEN,
+    PURPLE
+}
@@ -2,165 +2,225 @@ package org.firstinspires.ftc.teamcode;
 
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
-import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.Servo;
-import com.qualcomm.robotcore.util.ElapsedTime;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+
+import static org.firstinspires.ftc.teamcode.Commands.instant;
+import static org.firstinspires.ftc.teamcode.Commands.sequence;
+import static org.firstinspires.ftc.teamcode.Commands.waitSeconds;
+import static org.firstinspires.ftc.teamcode.Commands.waitUntil;
 
 @Autonomous(name = "Auto: Shoot 1 Ball", group = "Autonomous")
 public class Auto extends LinearOpMode {
 
-    // --- Constants from PrometheusDriver ---
-    static final double TICKS_PER_REV = 8192;
-    static final int TICKS_FOR_60_DEGREES = (int)(TICKS_PER_REV / 6.0);
-    
-    static final double KICKER_RETRACED = 0.0;
-    static final double KICKER_EXTENDED = 0.22;
+    // Kicker positions and kick timing come from Calibration, shared with PrometheusDriver
+    static final double RESET_TIME = 1.0;
+
+    // Driver Station updates per second
+    static final double TELEMETRY_RATE = 5;
+
+    // AprilTag detections are collected this often (at least the camera frame rate)
+    static final double VISION_RATE = 30;
+
+    // Hardware; package-private so the sim tests can check where the routine left the robot
+    PrometheusHardware robot;
+    Flywheel flywheel;
+    Spindexer spindexer;
+    private MecanumDrive drive;
+    Odometry odometry;
+    private Localizer localizer;
+    private AprilTagVision vision;
+    final SpindexerSlots slots = new SpindexerSlots();
 
-    static final double SPINUP_TIME = 2.0;
-    static final double KICK_TIME = 0.3;
-    static final double RESET_TIME = 1.0; 
+    private SubsystemScheduler subsystems;
+    private VisionManager cameras;
+    private final CommandScheduler scheduler = new CommandScheduler();
+    private Command routine;
+    private String status = "Ready";
 
-    // Hardware
-    private DcMotor leftFrontDrive, leftBackDrive, rightFrontDrive, rightBackDrive;
-    private DcMotor spindexer, outtakeMotor1, outtakeMotor2;
-    private Servo kickerServo1, kickerServo2;
+    private LoopProfiler profiler;
+    private int updateSection, commandsSection;
+
+    private TelemetryPublisher publisher;
+    private int statusLine, poseLine, tagLine, cameraLine, loopLine;
 
     @Override
     public void runOpMode() {
-        // --- Initialization ---
-        leftFrontDrive  = hardwareMap.get(DcMotor.class, "left_front_drive");
-        leftBackDrive   = hardwareMap.get(DcMotor.class, "left_back_drive");
-        rightFrontDrive = hardwareMap.get(DcMotor.class, "right_front_drive");
-        rightBackDrive  = hardwareMap.get(DcMotor.class, "right_back_drive");
-
-        spindexer = hardwareMap.get(DcMotor.class, "spindexer");
-        spindexer.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
-        
-        outtakeMotor1 = hardwareMap.get(DcMotor.class, "outtake_motor1");
-        outtakeMotor2 = hardwareMap.get(DcMotor.class, "outtake_motor2");
-
-        kickerServo1 = hardwareMap.get(Servo.class, "kicker_1");
-        kickerServo2 = hardwareMap.get(Servo.class, "kicker_2");
-
-        // Directions
-        leftFrontDrive.setDirection(DcMotor.Direction.FORWARD);
-        leftBackDrive.setDirection(DcMotor.Direction.FORWARD);
-        rightFrontDrive.setDirection(DcMotor.Direction.REVERSE);
-        rightBackDrive.setDirection(DcMotor.Direction.REVERSE);
-
-        outtakeMotor1.setDirection(DcMotor.Direction.FORWARD);
-        outtakeMotor2.setDirection(DcMotor.Direction.REVERSE);
-
-        kickerServo1.setDirection(Servo.Direction.REVERSE);
-        kickerServo2.setDirection(Servo.Direction.FORWARD);
-
-        // Reset Spindexer
-        spindexer.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        spindexer.setTargetPosition(0);
-        spindexer.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        spindexer.setPower(0.5);
-
-        // Kicker to start position
-        kickerServo1.setPosition(KICKER_RETRACED);
-        kickerServo2.setPosition(KICKER_RETRACED);
+        initialize(new PrometheusHardware(hardwareMap), hardwareMap, Calibration.load());
 
         telemetry.addData("Status", "Ready");
         telemetry.update();
 
         waitForStart();
+        publisher.start();
+        subsystems.start();
+        begin();
+        while (opModeIsActive() && cycle()) {
+            // cycle() does the work
+        }
+        finish();
+    }
 
-        // --- STEP 1: Modifiable Movement ---
-        // Change these values to adjust where the robot goes
-        driveForward(0.5, 1000); // Power 0.5 for 1000ms
-        strafeRight(0.5, 500);    // Power 0.5 for 500ms
-        
-        sleep(500); // Stabilize
-
-        // --- STEP 2: Shoot 1 Ball ---
-        telemetry.addData("Status", "Spinning up flywheels");
-        telemetry.update();
-        outtakeMotor1.setPower(1.0);
-        outtakeMotor2.setPower(1.0);
-        sleep((long)(SPINUP_TIME * 1000));
+    /**
+     * Everything up to waitForStart(): hardware setup and the routine.  Split out of runOpMode() with
+     * cycle() so the sim tests can run the same code on SimRobot.
+     */
+    void initialize(PrometheusHardware robot, HardwareMap hardwareMap, Calibration calibration) {
+        this.robot = robot;
 
-        telemetry.addData("Status", "Indexing ball");
-        telemetry.update();
-        spindexer.setTargetPosition(TICKS_FOR_60_DEGREES);
-        while (opModeIsActive() && spindexer.isBusy()) {
-            // Wait for spindexer to reach 60 degrees
-        }
-        sleep(200);
+        // Reset Spindexer; a new match starts from here, not from whatever ran before
+        spindexer = new Spindexer(robot.spindexer);
+        spindexer.reset();
+        Handoff.clear();
 
-        telemetry.addData("Status", "Kicking");
-        telemetry.update();
-        kickerServo1.setPosition(KICKER_EXTENDED);
-        kickerServo2.setPosition(KICKER_EXTENDED);
-        sleep((long)(KICK_TIME * 1000));
+        // Preloaded, colors unknown
+        slots.fillUnknown();
 
-        telemetry.addData("Status", "Resetting Kicker");
-        telemetry.update();
-        kickerServo1.setPosition(KICKER_RETRACED);
-        kickerServo2.setPosition(KICKER_RETRACED);
-        
-        // Final wait to ensure ball is gone and kicker is safe for TeleOp
-        sleep((long)(RESET_TIME * 1000));
+        // Kicker to start position
+        robot.kickerServo1.setPosition(calibration.kickerRetracted);
+        robot.kickerServo2.setPosition(calibration.kickerRetracted);
 
-        outtakeMotor1.setPower(0.0);
-        outtakeMotor2.setPower(0.0);
+        drive = new MecanumDrive(robot);
+        odometry = new Odometry(robot);
+        flywheel = new Flywheel(robot.outtakeMotor1, robot.outtakeMotor2);
+        robot.flush();
 
-        // --- STEP 3: Optional Parking ---
-        // driveForward(0.4, 500);
+        // Tag fixes correct Odometry through the Localizer, so the follower drives on the fused pose
+        subsystems = new SubsystemScheduler();
+        vision = new AprilTagVision(hardwareMap);
+        vision.readOn(subsystems, VISION_RATE);
+        localizer = new Localizer(odometry);
 
-        telemetry.addData("Status", "Done");
-        telemetry.update();
-    }
+        // Tags are only looked for while they can correct the path or the aim
+        cameras = new VisionManager();
+        int webcam = cameras.addPortal(vision.portal());
+        cameras.addProcessor(webcam, vision.processor(), VisionManager.Phase.DRIVE, VisionManager.Phase.AIM);
 
-    // --- Helper Methods for Modifiable Movement ---
+        profiler = new LoopProfiler();
+        updateSection   = profiler.addSection("update");
+        commandsSection = profiler.addSection("commands");
 
-    public void driveForward(double power, long time) {
-        setDrivePower(power, power, power, power);
-        sleep(time);
-        stopDrive();
+        // --- STEP 1: Modifiable Movement ---
+        // Change these values to adjust where the robot goes (inches / degrees, x forward, y left).
+        // The path and its speed profile are computed here, before the match starts.
+        Trajectory toShootingSpot = new TrajectoryBuilder(0, 0, 0)
+                .splineTo(30, -15, Math.toRadians(-90), 0)
+                .build();
+
+        // Build the whole routine now so nothing is allocated once the match starts.  Waits run on the
+        // snapshot clock, like the rest of the loop.
+        routine = sequence(
+                // Spin up and pre-index while the robot is still driving
+                instant(() -> {
+                    status = "Driving, spinning up flywheels";
+                    cameras.setPhase(VisionManager.Phase.DRIVE);
+                    flywheel.spinUp();
+                    spindexer.moveTo(Spindexer.TICKS_FOR_60_DEGREES);
+                }),
+
+                new TrajectoryFollower(toShootingSpot, robot, odometry, drive),
+
+                // --- STEP 2: Shoot 1 Ball ---
+                // Fire as soon as the spindexer has settled and the flywheels are at speed
+                instant(() -> {
+                    status = "Waiting for flywheels";
+                    cameras.setPhase(VisionManager.Phase.AIM);
+                }),
+                waitUntil(() -> spindexer.isAtTarget() && flywheel.isAtSpeed(), calibration.spinupTimeout, robot::cycleNanos),
+
+                instant(() -> {
+                    status = "Kicking";
+                    cameras.setPhase(VisionManager.Phase.SHOOT);
+                    robot.kickerServo1.setPosition(calibration.kickerExtended);
+                    robot.kickerServo2.setPosition(calibration.kickerExtended);
+                }),
+                waitSeconds(calibration.kickTime, robot::cycleNanos),
+
+                instant(() -> {
+                    status = "Resetting Kicker";
+                    cameras.setPhase(VisionManager.Phase.DRIVE);
+                    robot.kickerServo1.setPosition(calibration.kickerRetracted);
+                    robot.kickerServo2.setPosition(calibration.kickerRetracted);
+                    int firedSlot = SpindexerSlots.slotAt(SpindexerSlots.KICKER_STEP, spindexer.rotationSteps());
+                    if (firedSlot >= 0) {
+                        slots.clear(firedSlot);
+                    }
+                }),
+                // Final wait to ensure ball is gone and kicker is safe for TeleOp
+                waitSeconds(RESET_TIME, robot::cycleNanos),
+                instant(flywheel::stop)
+
+                // --- STEP 3: Optional Parking ---
+                // Add another TrajectoryFollower here
+        );
+
+        publisher = new TelemetryPublisher(telemetry, TELEMETRY_RATE);
+        statusLine = publisher.addLine("Status");
+        poseLine   = publisher.addLine("Pose", "x %.1f  y %.1f  h %.1f");
+        tagLine    = publisher.addLine("Tags", "used %.0f  rejected %.0f  stale %.0f  std %.1f in");
+        cameraLine = publisher.addLine("Camera", "%.0f fps  %.0f ms  decimation %.0f");
+        loopLine   = publisher.addLine("Loop", LoopProfiler.REPORT_FORMAT);
     }
 
-    public void driveBackward(double power, long time) {
-        setDrivePower(-power, -power, -power, -power);
-        sleep(time);
-        stopDrive();
+    /** Start the routine.  The sim tests call this without starting the background threads. */
+    void begin() {
+        scheduler.schedule(routine);
     }
 
-    public void strafeLeft(double power, long time) {
-        setDrivePower(-power, power, power, -power);
-        sleep(time);
-        stopDrive();
+    /**
+     * One control cycle.
+     * @return false once the routine has finished
+     */
+    boolean cycle() {
+        profiler.startLoop();
+
+        HardwareSnapshot sensors = robot.update();
+        flywheel.update(sensors);
+        spindexer.update(sensors);
+        odometry.update(sensors);
+        localizer.update(sensors);
+        if (vision.update()) {
+            AprilTagVision.Fix fix = vision.fix();
+            localizer.addVisionPose(fix.x, fix.y, fix.heading, fix.range, fix.captureNanos);
+        }
+        profiler.lap(updateSection);
+
+        scheduler.run();
+        robot.flush();
+        profiler.lap(commandsSection);
+
+        publisher.setText(statusLine, status);
+        publisher.set(poseLine, odometry.getX(), odometry.getY(), Math.toDegrees(odometry.getHeading()));
+        publisher.set(tagLine, localizer.getAccepted(), localizer.getRejected(), localizer.getStale(),
+                localizer.getPositionStd());
+        if (vision.isAvailable()) {
+            VisionTuner tuner = vision.tuner();
+            publisher.set(cameraLine, tuner.getFps(), tuner.getLatencyMillis(), tuner.getDecimation());
+        }
+        profiler.report(publisher, loopLine);
+        publisher.commit();
+        return !scheduler.isIdle();
     }
 
-    public void strafeRight(double power, long time) {
-        setDrivePower(power, -power, -power, power);
-        sleep(time);
-        stopDrive();
-    }
+    /** After the loop: stop everything, hand off to TeleOp and write the diagnostics. */
+    void finish() {
+        subsystems.stop();
+        vision.close();
+        publisher.stop();
 
-    public void turnLeft(double power, long time) {
-        setDrivePower(-power, -power, power, power);
-        sleep(time);
-        stopDrive();
-    }
+        // Stop anything still running if the OpMode was ended early
+        scheduler.cancelAll();
+        flywheel.stop();
+        robot.flush();
 
-    public void turnRight(double power, long time) {
-        setDrivePower(power, power, -power, -power);
-        sleep(time);
-        stopDrive();
-    }
+        // TeleOp carries on from here without re-homing
+        Handoff.publish("Auto", odometry, spindexer, slots, flywheel);
 
-    private void setDrivePower(double lf, double lb, double rf, double rb) {
-        leftFrontDrive.setPower(lf);
-        leftBackDrive.setPower(lb);
-        rightFrontDrive.setPower(rf);
-        rightBackDrive.setPower(rb);
-    }
+        telemetry.addData("Status", "Done");
+        telemetry.update();
 
-    private void stopDrive() {
-        setDrivePower(0, 0, 0, 0);
+        profiler.dump("Auto");
+        subsystems.dump("Auto");
+        vision.dump("Auto");
+        cameras.dump("Auto");
     }
 }
@@ -0,0 +1,157 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+/*
+ * Write-coalescing wrapper around a DcMotorEx.
+ *
+ * setPower(), setVelocity() and setTargetPosition() only record the requested value.  Nothing is sent to the hub until
+ * flush(), which is called once at the end of the control cycle, and even then a value is only sent if it
+ * differs from the last one written.  Power changes smaller than the epsilon are dropped, except that a
+ * request for exactly 0.0 is always sent so the motor is never left creeping.
+ *
+ * Anything that talks to the motor directly (mode changes, encoder resets) must call invalidate()
+ * afterwards so the next flush() re-sends the current request.
+ */
+public class CachedMotor {
+
+    // Velocity changes (ticks per second) smaller than this are dropped
+    static final double VELOCITY_EPSILON = 1.0;
+
+    private final DcMotorEx motor;
+    private double epsilon;
+
+    // Last requested values and whether this cycle requested them
+    private double requestedPower = 0.0;
+    private double requestedVelocity = 0.0;
+    private int requestedTarget = 0;
+    private boolean powerRequested = false;
+    private boolean velocityRequested = false;
+    private boolean targetRequested = false;
+
+    // Last values actually written to the hub
+    private double sentPower = Double.NaN;
+    private double sentVelocity = Double.NaN;
+    private int sentTarget = 0;
+    private boolean targetSent = false;
+
+    // Set calls since the last flush()
+    private int requests = 0;
+
+    public CachedMotor(DcMotorEx motor, double epsilon) {
+        this.motor = motor;
+        this.epsilon = epsilon;
+    }
+
+    /** The wrapped motor, for configuration calls that are not cached. */
+    public DcMotorEx motor() {
+        return motor;
+    }
+
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    public void setPower(double power) {
+        requestedPower = power;
+        powerRequested = true;
+        requests++;
+    }
+
+    /** The most recently requested power.  Does not touch the hub. */
+    public double getPower() {
+        return requestedPower;
+    }
+
+    /**
+     * Request a velocity in ticks per second.  The hub's own velocity PIDF holds it, so the motor must
+     * be in RUN_USING_ENCODER.
+     */
+    public void setVelocity(double ticksPerSecond) {
+        requestedVelocity = ticksPerSecond;
+        velocityRequested = true;
+        requests++;
+    }
+
+    /** The most recently requested velocity.  Does not touch the hub. */
+    public double getRequestedVelocity() {
+        return requestedVelocity;
+    }
+
+    public void setTargetPosition(int position) {
+        requestedTarget = position;
+        targetRequested = true;
+        requests++;
+    }
+
+    /** The most recently requested target position.  Does not touch the hub. */
+    public int getTargetPosition() {
+        return requestedTarget;
+    }
+
+    /**
+     * Forget what was last written, so the next flush() sends the requested values again.
+     */
+    public void invalidate() {
+        sentPower = Double.NaN;
+        sentVelocity = Double.NaN;
+        targetSent = false;
+    }
+
+    /**
+     * Send any requested values that changed since the last write.
+     * @return the number of hub writes that were actually issued
+     */
+    public int flush() {
+        int writes = 0;
+        if (targetRequested && (!targetSent || requestedTarget != sentTarget)) {
+            motor.setTargetPosition(requestedTarget);
+            sentTarget = requestedTarget;
+            targetSent = true;
+            writes++;
+        }
+        // Power and velocity both drive the same output, so writing one makes the other stale
+        if (powerRequested && powerChanged()) {
+            motor.setPower(requestedPower);
+            sentPower = requestedPower;
+            sentVelocity = Double.NaN;
+            writes++;
+        }
+        if (velocityRequested && velocityChanged()) {
+            motor.setVelocity(requestedVelocity);
+            sentVelocity = requestedVelocity;
+            sentPower = Double.NaN;
+            writes++;
+        }
+        powerRequested = false;
+        velocityRequested = false;
+        targetRequested = false;
+        requests = 0;
+        return writes;
+    }
+
+    /** Set calls made since the last flush(). */
+    int pendingRequests() {
+        return requests;
+    }
+
+    private boolean powerChanged() {
+        if (Double.isNaN(sentPower)) {
+            return true;
+        }
+        if (requestedPower == 0.0) {
+            return sentPower != 0.0;
+        }
+        return Math.abs(requestedPower - sentPower) > epsilon;
+    }
+
+    private boolean velocityChanged() {
+        if (Double.isNaN(sentVelocity)) {
+            return true;
+        }
+        if (requestedVelocity == 0.0) {
+            return sentVelocity != 0.0;
+        }
+        return Math.abs(requestedVelocity - sentVelocity) > VELOCITY_EPSILON;
+    }
+}
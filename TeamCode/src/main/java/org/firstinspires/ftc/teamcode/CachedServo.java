@@ -0,0 +1,74 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Servo;
+
+/*
+ * Write-coalescing wrapper around a Servo.  Works the same way as CachedMotor: setPosition() records the
+ * request and flush() only sends it if it moved by more than the epsilon since the last write.
+ */
+public class CachedServo {
+
+    private final Servo servo;
+    private double epsilon;
+
+    private double requestedPosition = 0.0;
+    private boolean positionRequested = false;
+    private double sentPosition = Double.NaN;
+
+    // Set calls since the last flush()
+    private int requests = 0;
+
+    public CachedServo(Servo servo, double epsilon) {
+        this.servo = servo;
+        this.epsilon = epsilon;
+    }
+
+    /** The wrapped servo, for configuration calls that are not cached. */
+    public Servo servo() {
+        return servo;
+    }
+
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    public void setPosition(double position) {
+        requestedPosition = position;
+        positionRequested = true;
+        requests++;
+    }
+
+    /** The most recently requested position.  Does not touch the hub. */
+    public double getPosition() {
+        return requestedPosition;
+    }
+
+    /**
+     * Forget what was last written, so the next flush() sends the requested position again.
+     */
+    public void invalidate() {
+        sentPosition = Double.NaN;
+    }
+
+    /**
+     * Send the requested position if it changed since the last write.
+     * @return the number of hub writes that were actually issued
+     */
+    public int flush() {
+        int writes = 0;
+        if (positionRequested
+                && (Double.isNaN(sentPosition) || Math.abs(requestedPosition - sentPosition) > epsilon)) {
+            servo.setPosition(requestedPosition);
+            sentPosition = requestedPosition;
+            writes++;
+        }
+        positionRequested = false;
+        requests = 0;
+        return writes;
+    }
+
+    /** Set calls made since the last flush(). */
+    int pendingRequests() {
+        return requests;
+    }
+}
@@ -0,0 +1,198 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/*
+ * Tunable constants shared by the OpModes, stored on the hub so they can be retuned without a rebuild.
+ *
+ *     Calibration cal = Calibration.load();      // during init, well under a millisecond
+ *     ... cal.kickerExtended ...                 // plain fields, free to read in the loop
+ *
+ * Missing or unreadable files fall back to the defaults below, so a fresh hub behaves exactly as if these
+ * were still compile-time constants.  Tuning OpModes change the fields and call save().
+ *
+ * File (/sdcard/FIRST/settings/prometheus_calibration.bin, little-endian):
+ *     int magic "PCAL", int version, int count,
+ *     count x { byte name length, ASCII name, double value },
+ *     int CRC32 of everything before it.
+ * Values are stored by name, so adding or removing a key does not break files written by older code:
+ * unknown names are skipped and missing ones keep their default.  The header, CRC and atomic save are
+ * SettingsFile's, shared with ShotTable.
+ */
+public class Calibration {
+
+    static final String FILE_NAME = "prometheus_calibration.bin";
+    static final int MAGIC = 0x4C414350; // "PCAL"
+    static final int VERSION = 1;
+    static final int MAX_FILE_BYTES = 4096;
+
+    static final Charset ASCII = Charset.forName("US-ASCII");
+
+    // Keys, in file order; each has a field below and a case in get() / set()
+    static final String[] KEYS = {
+            "kicker_retracted", "kicker_extended",
+            "spinup_timeout", "kick_time", "retract_time", "intake_wait_time",
+            "green_hue_min", "green_hue_max", "purple_hue_min", "purple_hue_max",
+            "min_brightness", "min_saturation",
+            "aim_timeout", "turret_ticks_per_rev"
+    };
+
+    // Kicker servo positions
+    public double kickerRetracted = 0.0;
+    public double kickerExtended = 0.22;
+
+    // Sequence timing (seconds)
+    public double spinupTimeout = 1.5;  // Fire anyway if the flywheels never report being at speed
+    public double kickTime = 0.2;
+    public double retractTime = 0.15;   // Minimum time for the kicker to clear before the next kick
+    public double intakeWaitTime = 0.5; // Time for ball to enter spindexer before rotating
+
+    // Ball sensor hue ranges (degrees) and the floor below which a slot reads as empty
+    public double greenHueMin = 90;
+    public double greenHueMax = 170;
+    public double purpleHueMin = 200;
+    public double purpleHueMax = 300;
+    public double minBrightness = 150;  // r + g + b, raw counts
+    public double minSaturation = 0.15;
+
+    // Give up a volley when the turret has not locked on to the goal this long into a shot (seconds)
+    public double aimTimeout = 3.0;
+
+    // Turret encoder ticks per turret revolution: motor counts per rev times the gear ratio
+    // (goBILDA 312 RPM motor, 4:1 to the turret ring)
+    public double turretTicksPerRev = 537.7 * 4;
+
+    private final File file;
+
+    /** Defaults only, not tied to a file (sim tests, benchmarks). */
+    public Calibration() {
+        this(null);
+    }
+
+    Calibration(File file) {
+        this.file = file;
+    }
+
+    /** The calibration on the hub, or the defaults if there is none yet. */
+    public static Calibration load() {
+        Calibration calibration = new Calibration(new File(AppUtil.ROBOT_SETTINGS, FILE_NAME));
+        calibration.reload();
+        return calibration;
+    }
+
+    /**
+     * Read the file into the fields.  Keys not in the file keep their current value.
+     * @return false if the file is missing or invalid
+     */
+    public boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        long start = System.nanoTime();
+        ByteBuffer buffer = SettingsFile.read(file, MAGIC, VERSION, MAX_FILE_BYTES, "Calibration");
+        if (buffer == null) {
+            return false;
+        }
+
+        int count = buffer.getInt();
+        byte[] name = new byte[255];
+        for (int i = 0; i < count && buffer.remaining() >= 1 + 8; i++) {
+            int nameLength = buffer.get() & 0xFF;
+            if (buffer.remaining() < nameLength + 8) {
+                break;
+            }
+            buffer.get(name, 0, nameLength);
+            double value = buffer.getDouble();
+            int key = indexOf(name, nameLength);
+            if (key >= 0) {
+                set(key, value);
+            }
+        }
+        RobotLog.ii("Calibration", "loaded %d values from %s in %.2f ms",
+                count, file.getPath(), (System.nanoTime() - start) / 1e6);
+        return true;
+    }
+
+    /**
+     * Write every field to the file, replacing it atomically.
+     * @return false if the file could not be written (the old one is left as it was)
+     */
+    public boolean save() {
+        if (file == null) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_FILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(KEYS.length);
+        for (int key = 0; key < KEYS.length; key++) {
+            byte[] name = KEYS[key].getBytes(ASCII);
+            buffer.put((byte) name.length).put(name).putDouble(get(key));
+        }
+        return SettingsFile.write(file, buffer, "Calibration");
+    }
+
+    /** Value of KEYS[key]. */
+    public double get(int key) {
+        switch (key) {
+            case 0:  return kickerRetracted;
+            case 1:  return kickerExtended;
+            case 2:  return spinupTimeout;
+            case 3:  return kickTime;
+            case 4:  return retractTime;
+            case 5:  return intakeWaitTime;
+            case 6:  return greenHueMin;
+            case 7:  return greenHueMax;
+            case 8:  return purpleHueMin;
+            case 9:  return purpleHueMax;
+            case 10: return minBrightness;
+            case 11: return minSaturation;
+            case 12: return aimTimeout;
+            case 13: return turretTicksPerRev;
+            default: throw new IllegalArgumentException("No calibration key " + key);
+        }
+    }
+
+    /** Set KEYS[key]. */
+    public void set(int key, double value) {
+        switch (key) {
+            case 0:  kickerRetracted = value; break;
+            case 1:  kickerExtended = value; break;
+            case 2:  spinupTimeout = value; break;
+            case 3:  kickTime = value; break;
+            case 4:  retractTime = value; break;
+            case 5:  intakeWaitTime = value; break;
+            case 6:  greenHueMin = value; break;
+            case 7:  greenHueMax = value; break;
+            case 8:  purpleHueMin = value; break;
+            case 9:  purpleHueMax = value; break;
+            case 10: minBrightness = value; break;
+            case 11: minSaturation = value; break;
+            case 12: aimTimeout = value; break;
+            case 13: turretTicksPerRev = value; break;
+            default: throw new IllegalArgumentException("No calibration key " + key);
+        }
+    }
+
+    private static int indexOf(byte[] name, int length) {
+        for (int key = 0; key < KEYS.length; key++) {
+            String k = KEYS[key];
+            if (k.length() != length) {
+                continue;
+            }
+            boolean same = true;
+            for (int i = 0; i < length && same; i++) {
+                same = k.charAt(i) == name[i];
+            }
+            if (same) {
+                return key;
+            }
+        }
+        return -1;
+    }
+}
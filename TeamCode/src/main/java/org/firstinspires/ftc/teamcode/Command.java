@@ -0,0 +1,32 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * One unit of non-blocking robot behaviour, run by a CommandScheduler or a command group.
+ *
+ * initialize() is called when the command starts, then execute() and isFinished() once per loop until it
+ * finishes or is interrupted, and finally end().  Commands are meant to be built once during init and
+ * reused: initialize() must reset any state left over from a previous run, so that running a routine
+ * again never needs new objects.
+ */
+public abstract class Command {
+
+    /** Called once when the command is started. */
+    public void initialize() {
+    }
+
+    /** Called once per loop while the command is running. */
+    public void execute() {
+    }
+
+    /** Checked once per loop, right after execute(). */
+    public boolean isFinished() {
+        return false;
+    }
+
+    /**
+     * Called once when the command stops.
+     * @param interrupted true if it was cancelled (e.g. it lost a race) instead of finishing on its own
+     */
+    public void end(boolean interrupted) {
+    }
+}
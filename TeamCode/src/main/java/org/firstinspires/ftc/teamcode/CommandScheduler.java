@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Runs scheduled Commands, one tick per control loop.
+ *
+ *     scheduler.schedule(routine);
+ *     while (opModeIsActive() && !scheduler.isIdle()) {
+ *         robot.update();
+ *         scheduler.run();
+ *         robot.flush();
+ *     }
+ *
+ * Active commands live in a fixed-size array, so scheduling and running never allocate.
+ */
+public class CommandScheduler {
+
+    static final int MAX_COMMANDS = 16;
+
+    private final Command[] active = new Command[MAX_COMMANDS];
+    private int count = 0;
+
+    /**
+     * Start a command.  Scheduling one that is already running restarts it.
+     */
+    public void schedule(Command command) {
+        cancel(command);
+        if (count == MAX_COMMANDS) {
+            throw new IllegalStateException("CommandScheduler is full (" + MAX_COMMANDS + " commands)");
+        }
+        command.initialize();
+        active[count++] = command;
+    }
+
+    /**
+     * Run one tick of every active command, ending the ones that finish.
+     */
+    public void run() {
+        int i = 0;
+        while (i < count) {
+            Command command = active[i];
+            command.execute();
+            if (command.isFinished()) {
+                command.end(false);
+                remove(i);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    public void cancel(Command command) {
+        for (int i = 0; i < count; i++) {
+            if (active[i] == command) {
+                command.end(true);
+                remove(i);
+                return;
+            }
+        }
+    }
+
+    public void cancelAll() {
+        while (count > 0) {
+            active[count - 1].end(true);
+            remove(count - 1);
+        }
+    }
+
+    public boolean isScheduled(Command command) {
+        for (int i = 0; i < count; i++) {
+            if (active[i] == command) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isIdle() {
+        return count == 0;
+    }
+
+    private void remove(int index) {
+        // Shift down so the remaining commands keep running in the order they were scheduled
+        System.arraycopy(active, index + 1, active, index, count - index - 1);
+        active[--count] = null;
+    }
+}
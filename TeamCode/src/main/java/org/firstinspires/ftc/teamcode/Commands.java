@@ -0,0 +1,237 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.function.BooleanSupplier;
+
+/*
+ * Building blocks for command-based routines: waits, one-shot actions and the four kinds of groups.
+ *
+ *     sequence(a, b, c)      runs a, then b, then c
+ *     parallel(a, b)         runs both, finishes when both have finished
+ *     race(a, b)             runs both, finishes when either finishes (the other is interrupted)
+ *     deadline(a, b, c)      runs all, finishes when a finishes (b and c are interrupted)
+ *
+ * The factory methods allocate, so build routines during init.  Every command here resets itself in
+ * initialize(), so a routine can be run again, or a group re-entered, without creating new objects.
+ *
+ * Waits time themselves with a NanoClock.  OpModes pass robot::cycleNanos, so a wait measures the same
+ * control-cycle time as the rest of the loop (and simulated time under SimRobot); the overloads without
+ * one use System.nanoTime().
+ */
+public final class Commands {
+
+    private Commands() {
+    }
+
+    public static Command sequence(Command... commands) {
+        return new Sequence(commands);
+    }
+
+    public static Command parallel(Command... commands) {
+        return new Parallel(commands, Parallel.ALL);
+    }
+
+    public static Command race(Command... commands) {
+        return new Parallel(commands, Parallel.ANY);
+    }
+
+    public static Command deadline(Command deadline, Command... others) {
+        Command[] all = new Command[others.length + 1];
+        all[0] = deadline;
+        System.arraycopy(others, 0, all, 1, others.length);
+        return new Parallel(all, Parallel.FIRST);
+    }
+
+    public static Command waitSeconds(double seconds) {
+        return waitSeconds(seconds, NanoClock.SYSTEM);
+    }
+
+    public static Command waitSeconds(double seconds, NanoClock clock) {
+        return new Wait(seconds, clock);
+    }
+
+    public static Command waitUntil(BooleanSupplier condition) {
+        return new WaitUntil(condition);
+    }
+
+    public static Command instant(Runnable action) {
+        return new Instant(action);
+    }
+
+    /** Wait for the condition, but give up after the timeout. */
+    public static Command waitUntil(BooleanSupplier condition, double timeoutSeconds) {
+        return waitUntil(condition, timeoutSeconds, NanoClock.SYSTEM);
+    }
+
+    /** Wait for the condition, but give up after the timeout measured on the clock. */
+    public static Command waitUntil(BooleanSupplier condition, double timeoutSeconds, NanoClock clock) {
+        return race(waitUntil(condition), waitSeconds(timeoutSeconds, clock));
+    }
+
+    /*
+     * Runs its children one after another.
+     */
+    static class Sequence extends Command {
+        private final Command[] commands;
+        private int index;
+
+        Sequence(Command[] commands) {
+            this.commands = commands;
+        }
+
+        @Override
+        public void initialize() {
+            index = 0;
+            if (commands.length > 0) {
+                commands[0].initialize();
+            }
+        }
+
+        @Override
+        public void execute() {
+            if (index >= commands.length) {
+                return;
+            }
+            Command current = commands[index];
+            current.execute();
+            if (current.isFinished()) {
+                current.end(false);
+                index++;
+                if (index < commands.length) {
+                    commands[index].initialize();
+                }
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return index >= commands.length;
+        }
+
+        @Override
+        public void end(boolean interrupted) {
+            if (interrupted && index < commands.length) {
+                commands[index].end(true);
+            }
+        }
+    }
+
+    /*
+     * Runs its children together.  The end condition decides when the group is done; anything still
+     * running at that point is interrupted.
+     */
+    static class Parallel extends Command {
+        static final int ALL = 0;   // every child has finished
+        static final int ANY = 1;   // any child has finished
+        static final int FIRST = 2; // the first child has finished
+
+        private final Command[] commands;
+        private final boolean[] running;
+        private final int endCondition;
+        private boolean finished;
+
+        Parallel(Command[] commands, int endCondition) {
+            this.commands = commands;
+            this.running = new boolean[commands.length];
+            this.endCondition = endCondition;
+        }
+
+        @Override
+        public void initialize() {
+            finished = commands.length == 0;
+            for (int i = 0; i < commands.length; i++) {
+                commands[i].initialize();
+                running[i] = true;
+            }
+        }
+
+        @Override
+        public void execute() {
+            boolean anyRunning = false;
+            for (int i = 0; i < commands.length; i++) {
+                if (!running[i]) {
+                    continue;
+                }
+                commands[i].execute();
+                if (commands[i].isFinished()) {
+                    commands[i].end(false);
+                    running[i] = false;
+                    if (endCondition == ANY || (endCondition == FIRST && i == 0)) {
+                        finished = true;
+                    }
+                } else {
+                    anyRunning = true;
+                }
+            }
+            if (!anyRunning) {
+                finished = true;
+            }
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public void end(boolean interrupted) {
+            for (int i = 0; i < commands.length; i++) {
+                if (running[i]) {
+                    commands[i].end(true);
+                    running[i] = false;
+                }
+            }
+        }
+    }
+
+    static class Wait extends Command {
+        private final long durationNanos;
+        private final NanoClock clock;
+        private long startNanos;
+
+        Wait(double seconds, NanoClock clock) {
+            this.durationNanos = (long) (seconds * 1e9);
+            this.clock = clock;
+        }
+
+        @Override
+        public void initialize() {
+            startNanos = clock.nanoTime();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return clock.nanoTime() - startNanos >= durationNanos;
+        }
+    }
+
+    static class WaitUntil extends Command {
+        private final BooleanSupplier condition;
+
+        WaitUntil(BooleanSupplier condition) {
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return condition.getAsBoolean();
+        }
+    }
+
+    static class Instant extends Command {
+        private final Runnable action;
+
+        Instant(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void initialize() {
+            action.run();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.ReadWriteFile;
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+
+/*
+ * The text reports the dump() methods leave in /sdcard/FIRST/data after an OpMode (LoopProfiler,
+ * SubsystemScheduler, AprilTagVision, VisionManager).
+ *
+ *     StringBuilder out = new StringBuilder();
+ *     ...
+ *     DataFile.write("profile_" + name + ".txt", out, "LoopProfiler");
+ *
+ * A report is a diagnostic, so a failed write is logged under the caller's tag and otherwise ignored.
+ */
+final class DataFile {
+
+    private DataFile() {
+    }
+
+    /**
+     * Write text to /sdcard/FIRST/data/[fileName], replacing what was there.
+     * @return false if it could not be written (logged)
+     */
+    static boolean write(String fileName, CharSequence text, String tag) {
+        File file = new File(AppUtil.ROBOT_DATA_DIR, fileName);
+        try {
+            AppUtil.ensureDirectoryExists(AppUtil.ROBOT_DATA_DIR);
+            ReadWriteFile.writeFile(file, text.toString());
+            return true;
+        } catch (RuntimeException e) {
+            RobotLog.ee(tag, e, "failed to write %s", file.getPath());
+            return false;
+        }
+    }
+}
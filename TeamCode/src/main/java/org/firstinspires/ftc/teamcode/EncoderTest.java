@@ -8,7 +8,7 @@ import com.qualcomm.robotcore.hardware.DcMotor;
 public class EncoderTest extends LinearOpMode {
 
     private DcMotor spindexer;
-    private boolean lastAState = false;
+    private final GamepadInput input = new GamepadInput();
 
     @Override
     public void runOpMode() {
@@ -34,26 +34,45 @@ public class EncoderTest extends LinearOpMode {
         telemetry.addData(">", "Press 'A' on Gamepad 1 to reset the encoder to 0.");
         telemetry.update();
 
+        LoopProfiler profiler = new LoopProfiler();
+        int readSection      = profiler.addSection("read");
+        int telemetrySection = profiler.addSection("telemetry");
+
+        TelemetryPublisher publisher = new TelemetryPublisher(telemetry, 10);
+        int ticksLine     = publisher.addLine("Spindexer Encoder Ticks", "%.0f");
+        int rotationsLine = publisher.addLine("Full Rotations", "%.2f");
+        int helpLine      = publisher.addLine(">");
+        int loopLine      = publisher.addLine("Loop", LoopProfiler.REPORT_FORMAT);
+        publisher.setText(helpLine, "Press 'A' to reset.");
+
         waitForStart();
+        publisher.start();
 
         while (opModeIsActive()) {
+            profiler.startLoop();
 
             // Get the current position of the encoder
             int currentPosition = spindexer.getCurrentPosition();
 
             // Reset the encoder if the 'A' button is pressed
-            if (gamepad1.a && !lastAState) {
+            input.update(gamepad1);
+            if (input.pressed(GamepadInput.A)) {
                 spindexer.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
                 // We must set a run mode again after resetting
                 spindexer.setMode(DcMotor.RunMode.RUN_WITHOUT_ENCODER);
             }
-            lastAState = gamepad1.a;
+            profiler.lap(readSection);
 
             // --- Telemetry ---
-            telemetry.addData("Spindexer Encoder Ticks", currentPosition);
-            telemetry.addData("Full Rotations", "%.2f", (double)currentPosition / 8192.0);
-            telemetry.addData(">", "Press 'A' to reset.");
-            telemetry.update();
+            publisher.set(ticksLine, currentPosition);
+            publisher.set(rotationsLine, (double)currentPosition / 8192.0);
+            profiler.report(publisher, loopLine);
+            publisher.commit();
+            profiler.lap(telemetrySection);
         }
+
+        publisher.stop();
+
+        profiler.dump("EncoderTest");
     }
 }
@@ -0,0 +1,133 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.IMU;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+
+/*
+ * Robot heading on the field for field-relative driving, without an IMU round trip every loop.
+ *
+ * The heading comes from the cheapest source that does not drift badly:
+ *   - with a Pinpoint, Odometry's heading (the Pinpoint has its own IMU and is read every loop anyway),
+ *   - otherwise the Control Hub IMU, polled at a limited rate: each poll reads yaw and yaw rate, and
+ *     between polls the heading is extrapolated from them (for at most MAX_EXTRAPOLATION),
+ *   - with neither, Odometry's drive-encoder heading, which drifts as the wheels slip.
+ * IMU polls happen inside update() every IMU_READ_INTERVAL_NS, or, after readImuOn(), on a
+ * SubsystemScheduler thread so they never land in the control loop at all.
+ *
+ * setHeading() defines which way is "forward" on the field (0 = away from the driver, counter-clockwise
+ * positive, like Odometry).  It applies on the next update() that has a reading, so it is safe to call
+ * before the first IMU poll.
+ */
+public class FieldHeading {
+
+    // Inline IMU polls at most this often
+    static final long IMU_READ_INTERVAL_NS = 50_000_000L;
+
+    // Never extrapolate further than this past an IMU reading (seconds)
+    static final double MAX_EXTRAPOLATION = 0.25;
+
+    /** One IMU poll. */
+    static final class ImuReading {
+        double yaw;      // radians, counter-clockwise
+        double yawRate;  // radians/s
+        long nanos;      // System.nanoTime() when read
+    }
+
+    private final IMU imu;          // null when Odometry is used instead
+    private final Odometry odometry;
+
+    // Background polls (readImuOn), null while polling inline
+    private TripleBuffer<ImuReading> readings;
+    private final ImuReading inlineReading = new ImuReading();
+
+    // Latest IMU reading seen by the control loop
+    private double yaw = 0, yawRate = 0;
+    private long readingNanos = 0;
+    private boolean haveReading = false;
+
+    private double offset = 0;       // Field heading minus source heading
+    private double heading = 0;
+    private boolean headingRequested = false;
+    private double requestedHeading = 0;
+
+    public FieldHeading(PrometheusHardware robot, Odometry odometry) {
+        this.odometry = odometry;
+        imu = odometry.usesPinpoint() ? null : robot.imu;
+    }
+
+    /** True if the heading comes from the Control Hub IMU. */
+    public boolean usesImu() {
+        return imu != null;
+    }
+
+    /**
+     * Poll the IMU on a scheduler task at rateHz instead of inside update().  Does nothing if the IMU is
+     * not used.  Call during init, before the scheduler is started.
+     */
+    public void readImuOn(SubsystemScheduler scheduler, double rateHz) {
+        if (imu == null) {
+            return;
+        }
+        readings = new TripleBuffer<>(ImuReading::new);
+        scheduler.addTask("imu", rateHz, () -> {
+            ImuReading r = readings.writeBuffer();
+            readImu(r, System.nanoTime());
+            readings.publish();
+        });
+    }
+
+    /** Make the current direction of the robot read as `heading` (radians) from the next update() on. */
+    public void setHeading(double heading) {
+        requestedHeading = heading;
+        headingRequested = true;
+    }
+
+    /** Advance to this cycle.  Call once per loop after Odometry.update(). */
+    public void update(HardwareSnapshot sensors) {
+        double source;
+        if (imu == null) {
+            source = odometry.getHeading();
+        } else {
+            if (readings != null) {
+                if (readings.update()) {
+                    ImuReading r = readings.read();
+                    yaw = r.yaw;
+                    yawRate = r.yawRate;
+                    readingNanos = r.nanos;
+                    haveReading = true;
+                }
+            } else if (!haveReading || sensors.timestampNanos() - readingNanos >= IMU_READ_INTERVAL_NS) {
+                ImuReading r = inlineReading;
+                readImu(r, sensors.timestampNanos());
+                yaw = r.yaw;
+                yawRate = r.yawRate;
+                readingNanos = r.nanos;
+                haveReading = true;
+            }
+            if (!haveReading) {
+                return;
+            }
+            // Snapshot timestamps are System.nanoTime() on the robot, the same clock as background readings
+            double age = Math.max(0, Math.min((sensors.timestampNanos() - readingNanos) / 1e9, MAX_EXTRAPOLATION));
+            source = yaw + yawRate * age;
+        }
+
+        if (headingRequested) {
+            headingRequested = false;
+            offset = requestedHeading - source;
+        }
+        heading = Odometry.normalize(source + offset);
+    }
+
+    /** Field heading in radians, counter-clockwise, 0 = away from the driver. */
+    public double getHeading() {
+        return heading;
+    }
+
+    private void readImu(ImuReading r, long nanos) {
+        r.yaw = imu.getRobotYawPitchRollAngles().getYaw(AngleUnit.RADIANS);
+        r.yawRate = imu.getRobotAngularVelocity(AngleUnit.RADIANS).zRotationRate;
+        r.nanos = nanos;
+    }
+}
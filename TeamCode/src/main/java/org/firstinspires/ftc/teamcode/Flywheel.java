@@ -0,0 +1,110 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+
+/*
+ * Closed-loop velocity control for the two outtake flywheels.
+ *
+ * Each wheel runs in RUN_USING_ENCODER with the hub's velocity PIDF: F is the feedforward that gets the
+ * wheel close to the target on its own, and P/I/D take out the rest, including the drop in speed when the
+ * battery sags or a ball is fired.  Because the control loop runs on the hub it keeps working while an
+ * OpMode is sleeping.
+ *
+ * Measured velocities come from the per-cycle HardwareSnapshot, so isAtSpeed() costs no hub traffic.
+ * Starting values for the coefficients follow the REV velocity tuning guide: F = 32767 / max velocity,
+ * P = 0.1 * F, I = 0.1 * P.
+ */
+public class Flywheel {
+
+    // Encoder counts per second at full power (bare motor, ~6000 RPM at 28 counts/rev)
+    static final double MAX_TICKS_PER_SECOND = 2800;
+
+    // Default shot speed and how close both wheels need to be before firing
+    static final double TARGET_VELOCITY = 2400;
+    static final double AT_SPEED_TOLERANCE = 60;
+
+    static final double F = 32767 / MAX_TICKS_PER_SECOND;
+    static final double P = 0.1 * F;
+    static final double I = 0.1 * P;
+    static final double D = 0;
+
+    private final CachedMotor motor1;
+    private final CachedMotor motor2;
+
+    private double targetVelocity = 0;
+    private double shotVelocity = TARGET_VELOCITY;
+    private double velocity1 = 0;
+    private double velocity2 = 0;
+
+    public Flywheel(CachedMotor motor1, CachedMotor motor2) {
+        this.motor1 = motor1;
+        this.motor2 = motor2;
+        configure(motor1.motor());
+        configure(motor2.motor());
+    }
+
+    private static void configure(DcMotorEx motor) {
+        motor.setMode(DcMotor.RunMode.RUN_USING_ENCODER);
+        motor.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.FLOAT);
+        motor.setVelocityPIDFCoefficients(P, I, D, F);
+    }
+
+    /**
+     * Spin both wheels up to (or hold them at) the given speed in ticks per second.
+     */
+    public void setTargetVelocity(double ticksPerSecond) {
+        targetVelocity = ticksPerSecond;
+        motor1.setVelocity(ticksPerSecond);
+        motor2.setVelocity(ticksPerSecond);
+    }
+
+    /**
+     * The speed spinUp() uses, e.g. from the ShotTable for the current distance.  Takes effect on the next
+     * spinUp(); KickSequence calls it every cycle while a volley runs.
+     */
+    public void setShotVelocity(double ticksPerSecond) {
+        shotVelocity = ticksPerSecond;
+    }
+
+    public void spinUp() {
+        setTargetVelocity(shotVelocity);
+    }
+
+    public void stop() {
+        setTargetVelocity(0);
+    }
+
+    public double getTargetVelocity() {
+        return targetVelocity;
+    }
+
+    /**
+     * Pick up this cycle's measured wheel speeds.  Call once per loop after PrometheusHardware.update().
+     */
+    public void update(HardwareSnapshot sensors) {
+        velocity1 = sensors.outtake1Velocity();
+        velocity2 = sensors.outtake2Velocity();
+    }
+
+    public double getVelocity1() {
+        return velocity1;
+    }
+
+    public double getVelocity2() {
+        return velocity2;
+    }
+
+    /**
+     * True once both wheels are spinning and within the tolerance (ticks per second) of the target.
+     */
+    public boolean isAtSpeed(double tolerance) {
+        return targetVelocity > 0
+                && Math.abs(velocity1 - targetVelocity) <= tolerance
+                && Math.abs(velocity2 - targetVelocity) <= tolerance;
+    }
+
+    public boolean isAtSpeed() {
+        return isAtSpeed(AT_SPEED_TOLERANCE);
+    }
+}
@@ -0,0 +1,193 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+/*
+ * One control cycle's view of a gamepad, with edge detection.
+ *
+ * The SDK updates Gamepad fields from another thread, so reading gamepad1.a twice in one loop can give
+ * two different answers.  update() copies every button into one int (a bit per button, see A, B, ...)
+ * and the sticks into doubles, once per cycle; everything else reads that copy:
+ *
+ *     GamepadInput driver = new GamepadInput();
+ *     ...
+ *     driver.update(gamepad1, sensors.timestampNanos());   // top of the loop
+ *     if (driver.pressed(GamepadInput.A)) { ... }           // true for one cycle per press
+ *
+ * Besides pressed() / released() / held() there are heldSeconds(), doubleTapped() and repeating() (a
+ * keyboard-style auto-repeat for nudging values).  Sticks get a deadband and a power-curve response;
+ * leftY() and rightY() are flipped so that pushing up is positive.  Nothing here allocates.
+ */
+public class GamepadInput {
+
+    // Button bits
+    public static final int A                  = 1;
+    public static final int B                  = 1 << 1;
+    public static final int X                  = 1 << 2;
+    public static final int Y                  = 1 << 3;
+    public static final int DPAD_UP            = 1 << 4;
+    public static final int DPAD_DOWN          = 1 << 5;
+    public static final int DPAD_LEFT          = 1 << 6;
+    public static final int DPAD_RIGHT         = 1 << 7;
+    public static final int LEFT_BUMPER        = 1 << 8;
+    public static final int RIGHT_BUMPER       = 1 << 9;
+    public static final int LEFT_STICK_BUTTON  = 1 << 10;
+    public static final int RIGHT_STICK_BUTTON = 1 << 11;
+    public static final int START              = 1 << 12;
+    public static final int BACK               = 1 << 13;
+    public static final int GUIDE              = 1 << 14;
+    static final int BUTTON_COUNT = 15;
+
+    // Stick shaping defaults: ignore small deflections, linear response above that
+    static final double DEFAULT_DEADBAND = 0.05;
+    static final double DEFAULT_EXPONENT = 1.0;
+
+    // A second press within this long of the first counts as a double tap
+    static final double DOUBLE_TAP_WINDOW = 0.3;
+
+    private int buttons = 0;
+    private int previous = 0;
+    private long nowNanos = 0;
+
+    // Per button: when it was last pressed, the press before that, and the last auto-repeat
+    private final long[] pressedAt = new long[BUTTON_COUNT];
+    private final long[] previousPressAt = new long[BUTTON_COUNT];
+    private final long[] repeatAt = new long[BUTTON_COUNT];
+
+    private double leftX, leftY, rightX, rightY, leftTrigger, rightTrigger;
+
+    private double deadband = DEFAULT_DEADBAND;
+    private double exponent = DEFAULT_EXPONENT;
+
+    /**
+     * Stick response: deflections below deadband read 0, the rest is rescaled to 0..1 and raised to
+     * exponent (2 gives finer control at low speed), keeping its sign.
+     */
+    public void setStickCurve(double deadband, double exponent) {
+        this.deadband = deadband;
+        this.exponent = exponent;
+    }
+
+    /** Take this cycle's snapshot, timed with System.nanoTime(). */
+    public void update(Gamepad gamepad) {
+        update(gamepad, System.nanoTime());
+    }
+
+    /** Take this cycle's snapshot.  Call once per loop, before any other query. */
+    public void update(Gamepad gamepad, long timestampNanos) {
+        nowNanos = timestampNanos;
+        previous = buttons;
+
+        int b = 0;
+        if (gamepad.a)                  b |= A;
+        if (gamepad.b)                  b |= B;
+        if (gamepad.x)                  b |= X;
+        if (gamepad.y)                  b |= Y;
+        if (gamepad.dpad_up)            b |= DPAD_UP;
+        if (gamepad.dpad_down)          b |= DPAD_DOWN;
+        if (gamepad.dpad_left)          b |= DPAD_LEFT;
+        if (gamepad.dpad_right)         b |= DPAD_RIGHT;
+        if (gamepad.left_bumper)        b |= LEFT_BUMPER;
+        if (gamepad.right_bumper)       b |= RIGHT_BUMPER;
+        if (gamepad.left_stick_button)  b |= LEFT_STICK_BUTTON;
+        if (gamepad.right_stick_button) b |= RIGHT_STICK_BUTTON;
+        if (gamepad.start)              b |= START;
+        if (gamepad.back)               b |= BACK;
+        if (gamepad.guide)              b |= GUIDE;
+        buttons = b;
+
+        int rising = buttons & ~previous;
+        for (int i = 0; i < BUTTON_COUNT; i++) {
+            if ((rising & (1 << i)) != 0) {
+                previousPressAt[i] = pressedAt[i];
+                pressedAt[i] = timestampNanos;
+                repeatAt[i] = timestampNanos;
+            }
+        }
+
+        leftX = shape(gamepad.left_stick_x);
+        leftY = shape(-gamepad.left_stick_y);
+        rightX = shape(gamepad.right_stick_x);
+        rightY = shape(-gamepad.right_stick_y);
+        leftTrigger = gamepad.left_trigger;
+        rightTrigger = gamepad.right_trigger;
+    }
+
+    /** All buttons held this cycle, as bits. */
+    public int buttons() {
+        return buttons;
+    }
+
+    /** Held this cycle. */
+    public boolean held(int button) {
+        return (buttons & button) != 0;
+    }
+
+    /** Went down this cycle. */
+    public boolean pressed(int button) {
+        return (buttons & ~previous & button) != 0;
+    }
+
+    /** Came up this cycle. */
+    public boolean released(int button) {
+        return (~buttons & previous & button) != 0;
+    }
+
+    /** How long the button has been held, 0 if it is up. */
+    public double heldSeconds(int button) {
+        return held(button) ? (nowNanos - pressedAt[index(button)]) / 1e9 : 0;
+    }
+
+    /** Went down this cycle, within DOUBLE_TAP_WINDOW of the previous press. */
+    public boolean doubleTapped(int button) {
+        if (!pressed(button)) {
+            return false;
+        }
+        long before = previousPressAt[index(button)];
+        return before != 0 && (nowNanos - before) / 1e9 <= DOUBLE_TAP_WINDOW;
+    }
+
+    /**
+     * True on the press, then every interval seconds once the button has been held for delay seconds.
+     */
+    public boolean repeating(int button, double delay, double interval) {
+        if (pressed(button)) {
+            return true;
+        }
+        if (!held(button)) {
+            return false;
+        }
+        int i = index(button);
+        if ((nowNanos - pressedAt[i]) / 1e9 < delay || (nowNanos - repeatAt[i]) / 1e9 < interval) {
+            return false;
+        }
+        repeatAt[i] = nowNanos;
+        return true;
+    }
+
+    /** Shaped sticks, -1 to 1; Y is positive when pushed up. */
+    public double leftX()  { return leftX; }
+    public double leftY()  { return leftY; }
+    public double rightX() { return rightX; }
+    public double rightY() { return rightY; }
+
+    /** Triggers, 0 to 1, unshaped. */
+    public double leftTrigger()  { return leftTrigger; }
+    public double rightTrigger() { return rightTrigger; }
+
+    private double shape(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude <= deadband) {
+            return 0;
+        }
+        double scaled = Math.min(1.0, (magnitude - deadband) / (1.0 - deadband));
+        if (exponent != 1.0) {
+            scaled = Math.pow(scaled, exponent);
+        }
+        return Math.copySign(scaled, value);
+    }
+
+    private static int index(int button) {
+        return Integer.numberOfTrailingZeros(button);
+    }
+}
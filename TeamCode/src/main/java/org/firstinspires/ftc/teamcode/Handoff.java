@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.OpMode;
+
+/*
+ * Robot state passed from one OpMode to the next through the SDK blackboard (see ConceptBlackboard), so
+ * TeleOp carries on where Auto stopped instead of re-homing:
+ *
+ *     Handoff.publish("Auto", odometry, spindexer, slots, flywheel);   // when Auto ends
+ *     ...
+ *     Handoff handoff = Handoff.take();                                // during TeleOp init
+ *     if (handoff != null) { spindexer.resume(...); odometry.setPose(...); ... }
+ *
+ * The blackboard lives as long as the Robot Controller app, so a handoff older than MAX_AGE is dropped:
+ * after that long someone has probably moved the robot by hand.  take() removes it, so it is only used
+ * once; PrometheusDriver publishes its own state when it stops, so restarting TeleOp resumes too.
+ *
+ * The SDK stops every motor between OpModes, so flywheelTarget only records what the flywheels were
+ * asked for; TeleOp starts with them off.
+ */
+public final class Handoff {
+
+    static final String KEY = "prometheus.handoff";
+
+    // Older handoffs are ignored (seconds)
+    static final double MAX_AGE = 300;
+
+    /** OpMode that published this. */
+    public final String source;
+
+    /** Pose (inches, radians; x forward, y left, heading counter-clockwise). */
+    public final double x, y, heading;
+
+    /** Spindexer position and goal in the publishing OpMode's ticks. */
+    public final int spindexerPosition, spindexerGoal;
+
+    /** SpindexerSlots.bits(). */
+    public final int slotBits;
+
+    /** Flywheel target velocity (ticks/s) when the OpMode stopped. */
+    public final double flywheelTarget;
+
+    private final long publishedNanos;
+
+    private Handoff(String source, Odometry odometry, Spindexer spindexer, SpindexerSlots slots,
+                    Flywheel flywheel) {
+        this.source = source;
+        x = odometry.getX();
+        y = odometry.getY();
+        heading = odometry.getHeading();
+        spindexerPosition = spindexer.getPosition();
+        spindexerGoal = spindexer.getGoal();
+        slotBits = slots.bits();
+        flywheelTarget = flywheel.getTargetVelocity();
+        publishedNanos = System.nanoTime();
+    }
+
+    /** Leave this OpMode's final state for the next one. */
+    public static void publish(String source, Odometry odometry, Spindexer spindexer, SpindexerSlots slots,
+                               Flywheel flywheel) {
+        OpMode.blackboard.put(KEY, new Handoff(source, odometry, spindexer, slots, flywheel));
+    }
+
+    /**
+     * Remove and return the last published state.
+     * @return null if there is none or it is older than MAX_AGE
+     */
+    public static Handoff take() {
+        Object value = OpMode.blackboard.remove(KEY);
+        if (!(value instanceof Handoff)) {
+            return null;
+        }
+        Handoff handoff = (Handoff) value;
+        return handoff.ageSeconds() <= MAX_AGE ? handoff : null;
+    }
+
+    /** Forget any published state, e.g. when a new match starts. */
+    public static void clear() {
+        OpMode.blackboard.remove(KEY);
+    }
+
+    /** Seconds since this was published. */
+    public double ageSeconds() {
+        return (System.nanoTime() - publishedNanos) / 1e9;
+    }
+}
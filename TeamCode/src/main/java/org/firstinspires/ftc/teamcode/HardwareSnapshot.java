@@ -0,0 +1,74 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * One control cycle's worth of sensor readings, filled in by PrometheusHardware.update().
+ *
+ * OpModes only get read access through the getters, so every part of the loop sees the same values
+ * and nothing can trigger a fresh hub transaction by asking again.  The hardware class keeps two of
+ * these and alternates between them, so the snapshot from the previous cycle stays valid (and
+ * unchanged) for one more loop and nothing is allocated per cycle.
+ */
+public final class HardwareSnapshot {
+
+    // Encoder positions (ticks)
+    int leftFrontPosition, leftBackPosition, rightFrontPosition, rightBackPosition;
+    int spindexerPosition;
+    int outtake1Position, outtake2Position;
+    int outtakeTurnPosition;
+
+    // Encoder velocities (ticks per second)
+    double leftFrontVelocity, leftBackVelocity, rightFrontVelocity, rightBackVelocity;
+    double spindexerVelocity;
+    double outtake1Velocity, outtake2Velocity;
+    double outtakeTurnVelocity;
+
+    // Color sensor channels (raw counts); only fresh when colorValid is set
+    int red, green, blue;
+    boolean colorValid;
+
+    // Battery voltage (volts), refreshed a few times a second
+    double batteryVoltage;
+
+    // Cycle bookkeeping
+    long timestampNanos;
+    long cycle;
+
+    HardwareSnapshot() {
+    }
+
+    public int leftFrontPosition()   { return leftFrontPosition; }
+    public int leftBackPosition()    { return leftBackPosition; }
+    public int rightFrontPosition()  { return rightFrontPosition; }
+    public int rightBackPosition()   { return rightBackPosition; }
+    public int spindexerPosition()   { return spindexerPosition; }
+    public int outtake1Position()    { return outtake1Position; }
+    public int outtake2Position()    { return outtake2Position; }
+    public int outtakeTurnPosition() { return outtakeTurnPosition; }
+
+    public double leftFrontVelocity()   { return leftFrontVelocity; }
+    public double leftBackVelocity()    { return leftBackVelocity; }
+    public double rightFrontVelocity()  { return rightFrontVelocity; }
+    public double rightBackVelocity()   { return rightBackVelocity; }
+    public double spindexerVelocity()   { return spindexerVelocity; }
+    public double outtake1Velocity()    { return outtake1Velocity; }
+    public double outtake2Velocity()    { return outtake2Velocity; }
+    public double outtakeTurnVelocity() { return outtakeTurnVelocity; }
+
+    public int red()   { return red; }
+    public int green() { return green; }
+    public int blue()  { return blue; }
+
+    /**
+     * True if red/green/blue are a new reading, taken this cycle (or, with the color sensor on its own
+     * thread, since the last cycle); false if they are left over from earlier.
+     */
+    public boolean colorValid() { return colorValid; }
+
+    public double batteryVoltage() { return batteryVoltage; }
+
+    /** Clock time (System.nanoTime() on the robot) taken right after the bulk cache was cleared. */
+    public long timestampNanos() { return timestampNanos; }
+
+    /** Number of update() calls made before this snapshot was taken. */
+    public long cycle() { return cycle; }
+}
@@ -0,0 +1,92 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Automated intake: run the intake and fill the spindexer one slot at a time until every slot is full.
+ *
+ * An empty slot is turned to the intake, the intake gets Calibration.intakeWaitTime after the spindexer settles
+ * for a ball to drop in, the slot is marked loaded (the color classifier fills in its color separately),
+ * and the planner turns the nearest remaining empty slot to the intake.
+ *
+ * Timing comes from the HardwareSnapshot timestamps, like KickSequence.
+ */
+public class IntakeSequence {
+
+    static final double INTAKE_POWER = 1.0;
+
+    private final PrometheusHardware robot;
+    private final Spindexer spindexer;
+    private final SpindexerSlots slots;
+    private final double waitTime; // Time for ball to enter spindexer before rotating
+
+    private boolean running = false;
+    private long waitStartNanos = 0;
+    private int count = 0;
+
+    public IntakeSequence(PrometheusHardware robot, Spindexer spindexer, SpindexerSlots slots,
+                          Calibration calibration) {
+        this.robot = robot;
+        this.spindexer = spindexer;
+        this.slots = slots;
+        waitTime = calibration.intakeWaitTime;
+    }
+
+    /**
+     * Start filling the empty slots.
+     * @return false if every slot is already full
+     */
+    public boolean start() {
+        int steps = slots.planIntake(spindexer.rotationSteps());
+        if (steps == SpindexerSlots.NO_SLOT) {
+            return false;
+        }
+        spindexer.rotateSteps(steps);
+        running = true;
+        count = 0;
+        waitStartNanos = 0;
+        robot.intakeMotor.setPower(INTAKE_POWER);
+        return true;
+    }
+
+    /** Stop the sequence, leaving the intake motor as it is (the driver is taking over). */
+    public void cancel() {
+        running = false;
+    }
+
+    /** Advance the sequence.  Call once per loop after Spindexer.update(). */
+    public void update(HardwareSnapshot sensors) {
+        if (!running) {
+            return;
+        }
+        long now = sensors.timestampNanos();
+        if (!spindexer.isAtTarget() || waitStartNanos == 0) {
+            waitStartNanos = now;
+            return;
+        }
+        if ((now - waitStartNanos) / 1e9 < waitTime) {
+            return;
+        }
+
+        int intakeSlot = SpindexerSlots.slotAt(SpindexerSlots.INTAKE_STEP, spindexer.rotationSteps());
+        if (intakeSlot >= 0 && !slots.isLoaded(intakeSlot)) {
+            slots.load(intakeSlot, ArtifactColor.NONE);
+        }
+        count++;
+
+        int steps = slots.planIntake(spindexer.rotationSteps());
+        if (steps != SpindexerSlots.NO_SLOT) {
+            spindexer.rotateSteps(steps);
+            waitStartNanos = now;
+        } else {
+            running = false;
+        }
+    }
+
+    public boolean isIdle() {
+        return !running;
+    }
+
+    /** Balls taken in by the current (or last) run. */
+    public int getCount() {
+        return count;
+    }
+}
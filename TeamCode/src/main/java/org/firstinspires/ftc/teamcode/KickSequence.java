@@ -0,0 +1,194 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.function.BooleanSupplier;
+
+/*
+ * The volley state machine: spin up, then fire every loaded slot, nearest first.
+ *
+ *     IDLE -> SPINUP -> KICK -> RETRACT -> KICK -> ... -> IDLE
+ *
+ * A ball is fired as soon as the spindexer has settled on the kicker and both flywheels are at speed
+ * (or the spin-up timeout has passed, so a flywheel that never quite reaches speed does not block the volley).
+ * An optional fire gate, such as Turret.isOnTarget(), also has to be open.  The gate is never overridden:
+ * an unaimed ball is a wasted ball, and possibly one in the other alliance's goal.  If it stays closed
+ * for Calibration.aimTimeout into a shot, the volley is given up instead, with the balls left in their
+ * slots, and aimTimedOut() says so until the next start().
+ * After each kick the fired slot is cleared in SpindexerSlots and the planner picks the next loaded slot,
+ * turning whichever way is shorter; when none are left the spindexer puts an empty slot back at the intake.
+ *
+ * Timing comes from the HardwareSnapshot timestamps, so the sequence runs the same on the robot and in
+ * the sim tests.
+ */
+public class KickSequence {
+
+    public enum State {
+        IDLE,
+        SPINUP,
+        KICK,
+        RETRACT
+    }
+
+    private final PrometheusHardware robot;
+    private final Flywheel flywheel;
+    private final Spindexer spindexer;
+    private final SpindexerSlots slots;
+
+    // Kicker positions and timing, from Calibration
+    private final double kickerRetracted;
+    private final double kickerExtended;
+    private final double spinupTimeout;
+    private final double aimTimeout;
+    private final double kickTime;
+    private final double retractTime;
+
+    private State state = State.IDLE;
+    private long stateStartNanos = 0;
+    private boolean startRequested = false;
+    private ArtifactColor preferredColor = ArtifactColor.NONE;
+    private int ballsKicked = 0;
+    private BooleanSupplier fireGate = () -> true;
+    private boolean aimTimedOut = false;
+
+    public KickSequence(PrometheusHardware robot, Flywheel flywheel, Spindexer spindexer, SpindexerSlots slots,
+                        Calibration calibration) {
+        this.robot = robot;
+        this.flywheel = flywheel;
+        this.spindexer = spindexer;
+        this.slots = slots;
+        kickerRetracted = calibration.kickerRetracted;
+        kickerExtended = calibration.kickerExtended;
+        spinupTimeout = calibration.spinupTimeout;
+        aimTimeout = calibration.aimTimeout;
+        kickTime = calibration.kickTime;
+        retractTime = calibration.retractTime;
+    }
+
+    /**
+     * Only fire while `gate` is true, e.g. turret::isOnTarget; give the volley up if it stays closed for
+     * Calibration.aimTimeout.  Call during init.
+     */
+    public void setFireGate(BooleanSupplier gate) {
+        fireGate = gate;
+    }
+
+    /** Pull the kicker back.  Call during init. */
+    public void retract() {
+        setKicker(kickerRetracted);
+    }
+
+    /**
+     * Start a volley on the next update(), firing `preferred` first if it is loaded (NONE for nearest).
+     * Ignored unless the sequence is idle.
+     */
+    public void start(ArtifactColor preferred) {
+        if (state == State.IDLE) {
+            startRequested = true;
+            preferredColor = preferred;
+            aimTimedOut = false;
+        }
+    }
+
+    /** Advance the sequence.  Call once per loop after Spindexer.update() and Flywheel.update(). */
+    public void update(HardwareSnapshot sensors) {
+        long now = sensors.timestampNanos();
+        double elapsed = (now - stateStartNanos) / 1e9;
+
+        boolean spunUp = flywheel.isAtSpeed() || elapsed >= spinupTimeout;
+        boolean aimed = fireGate.getAsBoolean();
+        boolean readyToFire = spindexer.isAtTarget() && spunUp && aimed;
+        boolean giveUp = !aimed && elapsed >= aimTimeout;
+
+        switch (state) {
+            case IDLE:
+                flywheel.stop();
+                if (startRequested) {
+                    startRequested = false;
+
+                    // Balls loaded by hand or with the manual intake are not in the model
+                    if (slots.isEmpty()) {
+                        slots.fillUnknown();
+                    }
+                    ballsKicked = 0;
+                    enter(State.SPINUP, now);
+
+                    // Turn the nearest loaded slot (of the preferred color, if any) to the kicker
+                    spindexer.rotateSteps(slots.planShot(preferredColor, spindexer.rotationSteps()));
+                }
+                break;
+
+            case SPINUP:
+                flywheel.spinUp();
+                if (readyToFire) {
+                    enter(State.KICK, now);
+                    setKicker(kickerExtended);
+                } else if (giveUp) {
+                    aimTimedOut = true;
+                    enter(State.IDLE, now);
+                }
+                break;
+
+            case KICK:
+                flywheel.spinUp();
+                if (elapsed >= kickTime) {
+                    ballsKicked++;
+                    setKicker(kickerRetracted);
+
+                    int firedSlot = SpindexerSlots.slotAt(SpindexerSlots.KICKER_STEP, spindexer.rotationSteps());
+                    if (firedSlot >= 0) {
+                        slots.clear(firedSlot);
+                    }
+
+                    int steps = slots.planShot(preferredColor, spindexer.rotationSteps());
+                    if (steps != SpindexerSlots.NO_SLOT) {
+                        // Next loaded slot, whichever way round is shorter
+                        spindexer.rotateSteps(steps);
+                        enter(State.RETRACT, now);
+                    } else {
+                        // Final re-alignment: put an empty slot back at the intake
+                        spindexer.rotateSteps(slots.planIntake(spindexer.rotationSteps()));
+                        enter(State.IDLE, now);
+                    }
+                }
+                break;
+
+            case RETRACT:
+                flywheel.spinUp();
+                if (elapsed >= retractTime && readyToFire) {
+                    enter(State.KICK, now);
+                    setKicker(kickerExtended);
+                } else if (giveUp) {
+                    aimTimedOut = true;
+                    enter(State.IDLE, now);
+                }
+                break;
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isIdle() {
+        return state == State.IDLE && !startRequested;
+    }
+
+    /** True if the last volley was given up because the fire gate stayed closed. */
+    public boolean aimTimedOut() {
+        return aimTimedOut;
+    }
+
+    /** Balls fired in the current (or last) volley. */
+    public int getBallsKicked() {
+        return ballsKicked;
+    }
+
+    private void enter(State next, long now) {
+        state = next;
+        stateStartNanos = now;
+    }
+
+    private void setKicker(double position) {
+        robot.kickerServo1.setPosition(position);
+        robot.kickerServo2.setPosition(position);
+    }
+}
@@ -0,0 +1,128 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Fixed-size, log-linear latency histogram in the spirit of HdrHistogram.
+ *
+ * Values are recorded in microseconds.  Everything below 64 us gets its own bucket; above that each
+ * power of two is split into 32 buckets, so any recorded value is off by at most ~3%.  Values above
+ * ~16 s are clamped into the last bucket.  The bucket array is allocated once, so recording never
+ * allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;     // 64
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;     // 32
+    private static final int MAX_MSB = 23;                           // 2^24 us ~= 16.8 s
+    private static final int BUCKET_COUNT =
+            SUB_BUCKETS + (MAX_MSB - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount = 0;
+    private long maxMicros = 0;
+    private long minMicros = Long.MAX_VALUE;
+    private long sumMicros = 0;
+
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts[bucketIndex(micros)]++;
+        totalCount++;
+        sumMicros += micros;
+        if (micros > maxMicros) maxMicros = micros;
+        if (micros < minMicros) minMicros = micros;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        totalCount = 0;
+        maxMicros = 0;
+        minMicros = Long.MAX_VALUE;
+        sumMicros = 0;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long maxMicros() {
+        return maxMicros;
+    }
+
+    public long minMicros() {
+        return totalCount == 0 ? 0 : minMicros;
+    }
+
+    public double meanMicros() {
+        return totalCount == 0 ? 0 : (double) sumMicros / totalCount;
+    }
+
+    /**
+     * The value at the given percentile (0-100), reported as the upper edge of its bucket and never
+     * more than the largest value actually recorded.
+     */
+    public long percentileMicros(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile / 100.0 * totalCount);
+        if (target < 1) target = 1;
+
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(bucketHighMicros(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    /** Number of buckets, for walking the raw data with bucketCount()/bucketLowMicros(). */
+    public int bucketCount() {
+        return BUCKET_COUNT;
+    }
+
+    public long countAt(int bucket) {
+        return counts[bucket];
+    }
+
+    public static long bucketLowMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int k = bucket - SUB_BUCKETS;
+        int shift = k / HALF_SUB_BUCKETS + 1;
+        long top = (k % HALF_SUB_BUCKETS) + HALF_SUB_BUCKETS;
+        return top << shift;
+    }
+
+    public static long bucketHighMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int k = bucket - SUB_BUCKETS;
+        int shift = k / HALF_SUB_BUCKETS + 1;
+        return bucketLowMicros(bucket) + (1L << shift) - 1;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        if (msb > MAX_MSB) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = msb - SUB_BUCKET_BITS + 1;
+        int top = (int) (micros >> shift);              // always in [32, 64)
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (top - HALF_SUB_BUCKETS);
+    }
+}
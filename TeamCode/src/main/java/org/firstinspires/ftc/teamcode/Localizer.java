@@ -0,0 +1,332 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Fuses Odometry with AprilTag robot poses in an extended Kalman filter, correcting for camera latency.
+ *
+ * Odometry is the prediction: every cycle update() takes its pose change as the motion, grows the 3x3
+ * covariance of (x, y, heading) by process noise proportional to the distance driven and angle turned,
+ * and records the pose, covariance and time in a ring buffer.  A tag pose is a direct measurement of
+ * (x, y, heading), so the correction is the linear Kalman update with H = I.
+ *
+ * A tag pose describes where the robot was when the frame was captured, typically 50-100 ms before it
+ * reaches the loop.  addVisionPose() therefore finds the ring entry at the capture time, corrects that
+ * past state, then replays the recorded motion since then on top of it (the same rigid motion, and the
+ * covariance re-propagated step by step) to get the corrected pose for now.  The result is written back
+ * with Odometry.setPose(), so everything that reads Odometry (TrajectoryFollower, Handoff, ...) sees the
+ * fused pose at full loop rate without waiting for the camera.  With a Pinpoint that only moves
+ * Odometry's offset; nothing is written to the device.
+ *
+ * Frames: the filter works in Odometry's frame (where the robot started).  Tag poses are in field
+ * coordinates; the field pose of Odometry's origin is either given with setFieldOrigin() or taken from
+ * the first tag pose (the filter is then "anchored").  Measurements more than GATE_MAHALANOBIS_SQUARED
+ * from the prediction (a misread tag, a bump) are rejected.  Nothing here allocates.
+ */
+public class Localizer {
+
+    // History kept for latency compensation; the oldest usable measurement is MAX_LATENCY_NS old
+    static final int HISTORY = 256;
+    static final long MAX_LATENCY_NS = 500_000_000L;
+
+    // Odometry process noise: variance added per inch driven and per radian turned
+    static final double POSITION_VARIANCE_PER_INCH = 0.01;     // in^2 per in
+    static final double HEADING_VARIANCE_PER_RADIAN = 0.001;   // rad^2 per rad
+    static final double HEADING_VARIANCE_PER_INCH = 0.00002;   // rad^2 per in
+
+    // Uncertainty at the start of the match
+    static final double INITIAL_POSITION_STD = 2.0;                 // in
+    static final double INITIAL_HEADING_STD = Math.toRadians(5);   // rad
+
+    // Tag pose noise: position error grows with distance to the tag
+    static final double TAG_POSITION_STD = 0.5;                    // in, close up
+    static final double TAG_POSITION_STD_PER_INCH = 0.02;          // in per in of range
+    static final double TAG_HEADING_STD = Math.toRadians(3);       // rad
+
+    // Reject measurements further than this from the prediction (chi-squared, 3 dof, ~99.9%)
+    static final double GATE_MAHALANOBIS_SQUARED = 16.0;
+
+    private final Odometry odometry;
+
+    // Ring buffer of past states: time, pose (odometry frame) and covariance (row-major 3x3)
+    private final long[] nanos = new long[HISTORY];
+    private final double[] xs = new double[HISTORY];
+    private final double[] ys = new double[HISTORY];
+    private final double[] hs = new double[HISTORY];
+    private final double[] covs = new double[HISTORY * 9];
+    private int newest = -1;
+    private int count = 0;
+
+    // Covariance of the newest state
+    private final double[] p = new double[9];
+
+    // Field pose of Odometry's origin
+    private double originX = 0, originY = 0, originHeading = 0;
+    private boolean anchored = false;
+
+    private long accepted = 0, rejected = 0, stale = 0;
+
+    // Scratch for the update, so nothing is allocated
+    private final double[] s = new double[9];
+    private final double[] sInverse = new double[9];
+    private final double[] k = new double[9];
+    private final double[] scratch = new double[9];
+
+    public Localizer(Odometry odometry) {
+        this.odometry = odometry;
+        resetCovariance(INITIAL_POSITION_STD, INITIAL_HEADING_STD);
+    }
+
+    /**
+     * Where Odometry's (0, 0, 0) is on the field (inches, radians), when the start position is known.
+     * Without this, the first tag pose decides.
+     */
+    public void setFieldOrigin(double x, double y, double heading) {
+        originX = x;
+        originY = y;
+        originHeading = heading;
+        anchored = true;
+    }
+
+    /** Set the current uncertainty, e.g. after Odometry.setPose() from a Handoff. */
+    public void resetCovariance(double positionStd, double headingStd) {
+        for (int i = 0; i < 9; i++) {
+            p[i] = 0;
+        }
+        p[0] = p[4] = positionStd * positionStd;
+        p[8] = headingStd * headingStd;
+    }
+
+    /**
+     * Advance the filter with this cycle's odometry.  Call once per loop right after Odometry.update().
+     */
+    public void update(HardwareSnapshot sensors) {
+        double x = odometry.getX();
+        double y = odometry.getY();
+        double h = odometry.getHeading();
+        if (count > 0) {
+            propagate(xs[newest], ys[newest], hs[newest], x, y, h, p);
+        }
+        record(sensors.timestampNanos(), x, y, h);
+    }
+
+    /**
+     * Correct the estimate with a robot pose seen in a frame captured at captureNanos (field coordinates,
+     * inches and radians; range is the distance to the tag, for weighting).
+     * @return true if the measurement was used
+     */
+    public boolean addVisionPose(double fieldX, double fieldY, double fieldHeading, double range,
+                                 long captureNanos) {
+        int at = entryAt(captureNanos);
+        if (at < 0) {
+            stale++;
+            return false;
+        }
+
+        if (!anchored) {
+            // Take the origin from this pose: Odometry's pose at capture time is this field pose
+            double heading = Odometry.normalize(fieldHeading - hs[at]);
+            double cos = Math.cos(heading), sin = Math.sin(heading);
+            originX = fieldX - (cos * xs[at] - sin * ys[at]);
+            originY = fieldY - (sin * xs[at] + cos * ys[at]);
+            originHeading = heading;
+            anchored = true;
+            accepted++;
+            return true;
+        }
+
+        // Field pose -> Odometry frame
+        double dx = fieldX - originX, dy = fieldY - originY;
+        double cos = Math.cos(originHeading), sin = Math.sin(originHeading);
+        double zx = cos * dx + sin * dy;
+        double zy = -sin * dx + cos * dy;
+        double zh = Odometry.normalize(fieldHeading - originHeading);
+
+        // Innovation and its covariance S = P + R at the capture time
+        double[] pAt = scratch;
+        System.arraycopy(covs, at * 9, pAt, 0, 9);
+        double nx = zx - xs[at], ny = zy - ys[at], nh = Odometry.normalize(zh - hs[at]);
+        double positionStd = TAG_POSITION_STD + TAG_POSITION_STD_PER_INCH * range;
+        System.arraycopy(pAt, 0, s, 0, 9);
+        s[0] += positionStd * positionStd;
+        s[4] += positionStd * positionStd;
+        s[8] += TAG_HEADING_STD * TAG_HEADING_STD;
+        if (!invert3(s, sInverse)) {
+            rejected++;
+            return false;
+        }
+
+        double d2 = nx * (sInverse[0] * nx + sInverse[1] * ny + sInverse[2] * nh)
+                  + ny * (sInverse[3] * nx + sInverse[4] * ny + sInverse[5] * nh)
+                  + nh * (sInverse[6] * nx + sInverse[7] * ny + sInverse[8] * nh);
+        if (d2 > GATE_MAHALANOBIS_SQUARED) {
+            rejected++;
+            return false;
+        }
+
+        // K = P S^-1, x += K n, P = (I - K) P
+        multiply3(pAt, sInverse, k);
+        double cx = xs[at] + k[0] * nx + k[1] * ny + k[2] * nh;
+        double cy = ys[at] + k[3] * nx + k[4] * ny + k[5] * nh;
+        double ch = Odometry.normalize(hs[at] + k[6] * nx + k[7] * ny + k[8] * nh);
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                double sum = pAt[r * 3 + c];
+                for (int m = 0; m < 3; m++) {
+                    sum -= k[r * 3 + m] * pAt[m * 3 + c];
+                }
+                covs[at * 9 + r * 3 + c] = sum;
+            }
+        }
+
+        replayFrom(at, cx, cy, ch);
+        accepted++;
+        return true;
+    }
+
+    public double getX() { return xs[newest]; }
+    public double getY() { return ys[newest]; }
+    public double getHeading() { return hs[newest]; }
+
+    /** Current pose in field coordinates (only meaningful once isAnchored()). */
+    public double getFieldX() {
+        return originX + Math.cos(originHeading) * getX() - Math.sin(originHeading) * getY();
+    }
+
+    public double getFieldY() {
+        return originY + Math.sin(originHeading) * getX() + Math.cos(originHeading) * getY();
+    }
+
+    public double getFieldHeading() {
+        return Odometry.normalize(originHeading + getHeading());
+    }
+
+    public boolean isAnchored() {
+        return anchored;
+    }
+
+    /** Standard deviation of the position estimate (inches), the larger axis. */
+    public double getPositionStd() {
+        return Math.sqrt(Math.max(p[0], p[4]));
+    }
+
+    public long getAccepted() { return accepted; }
+    public long getRejected() { return rejected; }
+    public long getStale() { return stale; }
+
+    // --- Internals ---
+
+    private void record(long timestamp, double x, double y, double h) {
+        newest = (newest + 1) % HISTORY;
+        if (count < HISTORY) {
+            count++;
+        }
+        nanos[newest] = timestamp;
+        xs[newest] = x;
+        ys[newest] = y;
+        hs[newest] = h;
+        System.arraycopy(p, 0, covs, newest * 9, 9);
+    }
+
+    /** Newest entry at or before t, or -1 if t is too old or in the future. */
+    private int entryAt(long t) {
+        if (count == 0 || t > nanos[newest] || nanos[newest] - t > MAX_LATENCY_NS) {
+            return -1;
+        }
+        for (int i = 0; i < count; i++) {
+            int index = (newest - i + HISTORY) % HISTORY;
+            if (nanos[index] <= t) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replace the state at `from` with the corrected pose, move every later pose by the same rigid
+     * transform, re-propagate the covariance along the way and push the result into Odometry.
+     */
+    private void replayFrom(int from, double cx, double cy, double ch) {
+        double oldX = xs[from], oldY = ys[from], oldH = hs[from];
+        double turn = Odometry.normalize(ch - oldH);
+        double cos = Math.cos(turn), sin = Math.sin(turn);
+
+        xs[from] = cx;
+        ys[from] = cy;
+        hs[from] = ch;
+        System.arraycopy(covs, from * 9, p, 0, 9);
+
+        int previous = from;
+        int index = from;
+        while (index != newest) {
+            index = (index + 1) % HISTORY;
+            double rx = xs[index] - oldX, ry = ys[index] - oldY;
+            double nx = cx + cos * rx - sin * ry;
+            double ny = cy + sin * rx + cos * ry;
+            double nh = Odometry.normalize(hs[index] + turn);
+            propagate(xs[previous], ys[previous], hs[previous], nx, ny, nh, p);
+            xs[index] = nx;
+            ys[index] = ny;
+            hs[index] = nh;
+            System.arraycopy(p, 0, covs, index * 9, 9);
+            previous = index;
+        }
+
+        odometry.setPose(xs[newest], ys[newest], hs[newest]);
+    }
+
+    /**
+     * Covariance prediction for the motion from (x0, y0, h0) to (x1, y1, h1):
+     * P = F P F^T + Q, where F couples heading error into position along the step.
+     */
+    private void propagate(double x0, double y0, double h0, double x1, double y1, double h1, double[] cov) {
+        double dx = x1 - x0, dy = y1 - y0;
+        double distance = Math.hypot(dx, dy);
+        double turn = Math.abs(Odometry.normalize(h1 - h0));
+
+        // F = [[1, 0, -dy], [0, 1, dx], [0, 0, 1]]
+        double p00 = cov[0], p01 = cov[1], p02 = cov[2];
+        double p11 = cov[4], p12 = cov[5];
+        double p22 = cov[8];
+        double n00 = p00 - 2 * dy * p02 + dy * dy * p22;
+        double n01 = p01 + dx * p02 - dy * p12 - dx * dy * p22;
+        double n02 = p02 - dy * p22;
+        double n11 = p11 + 2 * dx * p12 + dx * dx * p22;
+        double n12 = p12 + dx * p22;
+
+        double q = POSITION_VARIANCE_PER_INCH * distance;
+        cov[0] = n00 + q;
+        cov[1] = cov[3] = n01;
+        cov[2] = cov[6] = n02;
+        cov[4] = n11 + q;
+        cov[5] = cov[7] = n12;
+        cov[8] = p22 + HEADING_VARIANCE_PER_RADIAN * turn + HEADING_VARIANCE_PER_INCH * distance;
+    }
+
+    private static void multiply3(double[] a, double[] b, double[] out) {
+        for (int r = 0; r < 3; r++) {
+            for (int c = 0; c < 3; c++) {
+                out[r * 3 + c] = a[r * 3] * b[c] + a[r * 3 + 1] * b[3 + c] + a[r * 3 + 2] * b[6 + c];
+            }
+        }
+    }
+
+    private static boolean invert3(double[] m, double[] out) {
+        double c00 = m[4] * m[8] - m[5] * m[7];
+        double c01 = m[5] * m[6] - m[3] * m[8];
+        double c02 = m[3] * m[7] - m[4] * m[6];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (Math.abs(det) < 1e-12) {
+            return false;
+        }
+        double inv = 1.0 / det;
+        out[0] = c00 * inv;
+        out[1] = (m[2] * m[7] - m[1] * m[8]) * inv;
+        out[2] = (m[1] * m[5] - m[2] * m[4]) * inv;
+        out[3] = c01 * inv;
+        out[4] = (m[0] * m[8] - m[2] * m[6]) * inv;
+        out[5] = (m[2] * m[3] - m[0] * m[5]) * inv;
+        out[6] = c02 * inv;
+        out[7] = (m[1] * m[6] - m[0] * m[7]) * inv;
+        out[8] = (m[0] * m[4] - m[1] * m[3]) * inv;
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.Locale;
+
+/*
+ * Control-loop timing with per-section latency histograms.
+ *
+ * Register the sections during init, then in the loop:
+ *
+ *     profiler.startLoop();          // top of the loop, records the full period since the last call
+ *     ... drive code ...
+ *     profiler.lap(driveSection);    // time since the previous startLoop()/lap() goes to "drive"
+ *     ... kick code ...
+ *     profiler.lap(kickSection);
+ *     profiler.report(publisher, loopLine);   // loopLine added with REPORT_FORMAT
+ *
+ * Timing uses System.nanoTime() and the histograms are preallocated, so none of the above allocates.
+ * The percentiles on the telemetry line are only recomputed every REPORT_INTERVAL_NS, and dump() writes
+ * every histogram to /sdcard/FIRST/data when the OpMode stops.
+ */
+public class LoopProfiler {
+
+    static final int MAX_SECTIONS = 16;
+    static final long REPORT_INTERVAL_NS = 500_000_000L;
+
+    // For a TelemetryPublisher line: p50, p99, max in ms
+    public static final String REPORT_FORMAT = "p50 %.1f  p99 %.1f  max %.1f ms";
+
+    private final String[] names = new String[MAX_SECTIONS];
+    private final LatencyHistogram[] histograms = new LatencyHistogram[MAX_SECTIONS];
+    private int sectionCount = 0;
+
+    private final LatencyHistogram loopHistogram = new LatencyHistogram();
+    private long loopStartNanos = 0;
+    private long lastMarkNanos = 0;
+
+    private long lastReportNanos = 0;
+    private double reportP50 = 0, reportP99 = 0, reportMax = 0;
+
+    /**
+     * Add a named section.  Call during init, not in the loop.
+     * @return the id to pass to lap()
+     */
+    public int addSection(String name) {
+        if (sectionCount == MAX_SECTIONS) {
+            throw new IllegalStateException("LoopProfiler supports at most " + MAX_SECTIONS + " sections");
+        }
+        names[sectionCount] = name;
+        histograms[sectionCount] = new LatencyHistogram();
+        return sectionCount++;
+    }
+
+    /**
+     * Mark the top of a control cycle.  The time since the previous call is recorded as the loop period.
+     */
+    public void startLoop() {
+        long now = System.nanoTime();
+        if (loopStartNanos != 0) {
+            loopHistogram.recordNanos(now - loopStartNanos);
+        }
+        loopStartNanos = now;
+        lastMarkNanos = now;
+    }
+
+    /**
+     * Record the time since the previous startLoop() or lap() against the given section.
+     */
+    public void lap(int section) {
+        long now = System.nanoTime();
+        histograms[section].recordNanos(now - lastMarkNanos);
+        lastMarkNanos = now;
+    }
+
+    public LatencyHistogram loopHistogram() {
+        return loopHistogram;
+    }
+
+    public LatencyHistogram sectionHistogram(int section) {
+        return histograms[section];
+    }
+
+    /**
+     * Put the loop p50 / p99 / max on a TelemetryPublisher line added with REPORT_FORMAT.  The percentiles
+     * are only recomputed every REPORT_INTERVAL_NS, and nothing is formatted on the calling thread.
+     */
+    public void report(TelemetryPublisher publisher, int line) {
+        long now = System.nanoTime();
+        if (now - lastReportNanos >= REPORT_INTERVAL_NS && loopHistogram.count() > 0) {
+            lastReportNanos = now;
+            reportP50 = loopHistogram.percentileMicros(50) / 1000.0;
+            reportP99 = loopHistogram.percentileMicros(99) / 1000.0;
+            reportMax = loopHistogram.maxMicros() / 1000.0;
+        }
+        publisher.set(line, reportP50, reportP99, reportMax);
+    }
+
+    /**
+     * Write the summary and raw buckets of every histogram to /sdcard/FIRST/data/profile_[name].txt.
+     * Call once after the loop has ended.
+     */
+    public void dump(String name) {
+        StringBuilder out = new StringBuilder();
+        appendHistogram(out, "loop", loopHistogram);
+        for (int i = 0; i < sectionCount; i++) {
+            appendHistogram(out, names[i], histograms[i]);
+        }
+
+        DataFile.write("profile_" + name + ".txt", out, "LoopProfiler");
+    }
+
+    static void appendHistogram(StringBuilder out, String name, LatencyHistogram h) {
+        out.append(String.format(Locale.US,
+                "# %s count=%d min=%d mean=%.1f p50=%d p90=%d p99=%d p999=%d max=%d (us)%n",
+                name, h.count(), h.minMicros(), h.meanMicros(),
+                h.percentileMicros(50), h.percentileMicros(90), h.percentileMicros(99),
+                h.percentileMicros(99.9), h.maxMicros()));
+        out.append("low_us,high_us,count\n");
+        for (int i = 0; i < h.bucketCount(); i++) {
+            long c = h.countAt(i);
+            if (c != 0) {
+                out.append(LatencyHistogram.bucketLowMicros(i)).append(',')
+                        .append(LatencyHistogram.bucketHighMicros(i)).append(',')
+                        .append(c).append('\n');
+            }
+        }
+        out.append('\n');
+    }
+}
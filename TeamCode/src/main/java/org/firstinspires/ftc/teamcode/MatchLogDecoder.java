@@ -0,0 +1,99 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+/*
+ * Turns a MatchLogger file into CSV, oldest record first.  Not used on the robot; pull the log off the
+ * Control Hub (e.g. adb pull /sdcard/FIRST/data/match_PrometheusDriver.bin) and run, with the TeamCode
+ * classes on the classpath:
+ *
+ *     java org.firstinspires.ftc.teamcode.MatchLogDecoder match_PrometheusDriver.bin out.csv
+ *
+ * Columns are time_s (since the first record kept), period_us, then one column per channel.  Records whose
+ * sequence number does not match their slot (e.g. a page that never reached storage before power was
+ * lost) are skipped.
+ */
+public class MatchLogDecoder {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: MatchLogDecoder <log.bin> <out.csv>");
+            System.exit(2);
+        }
+        long rows = decode(new File(args[0]), new File(args[1]));
+        System.out.println("wrote " + rows + " records to " + args[1]);
+    }
+
+    /**
+     * Decode a log into a CSV file.
+     * @return the number of records written
+     */
+    public static long decode(File in, File out) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(in, "r");
+             Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), MatchLogger.UTF_8))) {
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(MatchLogger.MAGIC_OFFSET) != MatchLogger.MAGIC) {
+                throw new IOException(in + " is not a MatchLogger file");
+            }
+            int version = buffer.getInt(MatchLogger.VERSION_OFFSET);
+            if (version != MatchLogger.VERSION) {
+                throw new IOException(in + " has unsupported version " + version);
+            }
+            int recordBytes = buffer.getInt(MatchLogger.RECORD_BYTES_OFFSET);
+            int channels = buffer.getInt(MatchLogger.CHANNELS_OFFSET);
+            int capacity = buffer.getInt(MatchLogger.CAPACITY_OFFSET);
+            long written = buffer.getLong(MatchLogger.WRITTEN_OFFSET);
+
+            // Header row
+            writer.write("time_s,period_us");
+            int offset = MatchLogger.NAMES_OFFSET;
+            for (int i = 0; i < channels; i++) {
+                int length = buffer.getShort(offset);
+                byte[] bytes = new byte[length];
+                for (int k = 0; k < length; k++) {
+                    bytes[k] = buffer.get(offset + 2 + k);
+                }
+                offset += 2 + length;
+                writer.write(',');
+                writer.write(new String(bytes, MatchLogger.UTF_8));
+            }
+            writer.write('\n');
+
+            // Records, oldest first
+            long first = Math.max(0, written - capacity);
+            long startNanos = 0;
+            long rows = 0;
+            for (long i = first; i < written; i++) {
+                int record = MatchLogger.HEADER_BYTES + (int) (i % capacity) * recordBytes;
+                if (buffer.getInt(record + MatchLogger.SEQUENCE_OFFSET) != (int) i) {
+                    continue;
+                }
+                long timestamp = buffer.getLong(record + MatchLogger.TIMESTAMP_OFFSET);
+                if (rows == 0) {
+                    startNanos = timestamp;
+                }
+                writer.write(String.format(Locale.US, "%.6f,%d", (timestamp - startNanos) / 1e9,
+                        buffer.getInt(record + MatchLogger.PERIOD_OFFSET)));
+                for (int c = 0; c < channels; c++) {
+                    writer.write(',');
+                    writer.write(Float.toString(buffer.getFloat(record + MatchLogger.VALUES_OFFSET + 4 * c)));
+                }
+                writer.write('\n');
+                rows++;
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/*
+ * Full-rate binary log of every control cycle, for tuning after a match.
+ *
+ * Channels are named during init, then each cycle the loop sets their values and calls write():
+ *
+ *     MatchLogger log = new MatchLogger("PrometheusDriver");
+ *     int spindexerChannel = log.addChannel("spindexer_pos");
+ *     log.open();                                   // before waitForStart()
+ *     ...
+ *     log.set(spindexerChannel, sensors.spindexerPosition());
+ *     log.write(sensors.timestampNanos());          // once per loop
+ *     ...
+ *     log.close();
+ *
+ * The file (/sdcard/FIRST/data/match_[name].bin) is memory-mapped and used as a ring of fixed-width
+ * records, so set() and write() are plain stores into memory: no allocation, no system calls.  Every page
+ * is touched in open() so page faults happen during init rather than in the loop, and a background
+ * thread calls force() every FORCE_INTERVAL_MS to push the data to storage.  Once the ring is full the
+ * oldest records are overwritten.
+ *
+ * Layout (little-endian):
+ *   header, HEADER_BYTES long: magic, version, record size, channel count, capacity (ints), records
+ *     written (long), then each channel name as a short length and UTF-8 bytes
+ *   records: timestamp ns (long), period since the previous record in us (int), sequence number (int),
+ *     then one float per channel
+ *
+ * MatchLogDecoder turns a log into CSV.  If the file cannot be created, the logger logs the error and
+ * does nothing, so the OpMode still runs.
+ */
+public class MatchLogger {
+
+    static final int MAGIC = 0x504D4C47; // "PMLG"
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 4096;
+    static final int MAX_CHANNELS = 64;
+
+    // Header field offsets
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int RECORD_BYTES_OFFSET = 8;
+    static final int CHANNELS_OFFSET = 12;
+    static final int CAPACITY_OFFSET = 16;
+    static final int WRITTEN_OFFSET = 24;
+    static final int NAMES_OFFSET = 32;
+
+    // Record field offsets
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int PERIOD_OFFSET = 8;
+    static final int SEQUENCE_OFFSET = 12;
+    static final int VALUES_OFFSET = 16;
+
+    // Three minutes at 250 Hz, with room to spare
+    static final int DEFAULT_CAPACITY = 65536;
+
+    static final long FORCE_INTERVAL_MS = 1000;
+
+    private static final int PAGE_BYTES = 4096;
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String name;
+    private final int capacity;
+    private final String[] channels = new String[MAX_CHANNELS];
+    private int channelCount = 0;
+
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int recordBytes;
+
+    private long written = 0;
+    private int recordOffset;
+    private long lastTimestampNanos = 0;
+
+    private volatile boolean running = false;
+    private Thread forceThread;
+
+    public MatchLogger(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of records kept before the oldest are overwritten
+     */
+    public MatchLogger(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a named channel.  Call during init, before open().
+     * @return the id to pass to set()
+     */
+    public int addChannel(String channelName) {
+        if (buffer != null) {
+            throw new IllegalStateException("Channels must be added before open()");
+        }
+        if (channelCount == MAX_CHANNELS) {
+            throw new IllegalStateException("MatchLogger supports at most " + MAX_CHANNELS + " channels");
+        }
+        channels[channelCount] = channelName;
+        return channelCount++;
+    }
+
+    /** The log file for a given OpMode name. */
+    public static File fileFor(String name) {
+        return new File(AppUtil.ROBOT_DATA_DIR, "match_" + name + ".bin");
+    }
+
+    /**
+     * Create and map the log file and start the background flush.  Call during init; this touches the
+     * whole file and can take a few tens of milliseconds.
+     */
+    public void open() {
+        recordBytes = VALUES_OFFSET + 4 * channelCount;
+        long size = HEADER_BYTES + (long) recordBytes * capacity;
+        File path = fileFor(name);
+        try {
+            AppUtil.ensureDirectoryExists(AppUtil.ROBOT_DATA_DIR);
+            file = new RandomAccessFile(path, "rw");
+            file.setLength(size);
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException | RuntimeException e) {
+            RobotLog.ee("MatchLogger", e, "failed to open %s", path.getPath());
+            closeFile();
+            buffer = null;
+            return;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        // Fault every page in now rather than in the loop
+        for (long offset = 0; offset < size; offset += PAGE_BYTES) {
+            buffer.put((int) offset, (byte) 0);
+        }
+
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(RECORD_BYTES_OFFSET, recordBytes);
+        buffer.putInt(CHANNELS_OFFSET, channelCount);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(WRITTEN_OFFSET, 0);
+        int offset = NAMES_OFFSET;
+        for (int i = 0; i < channelCount; i++) {
+            byte[] bytes = channels[i].getBytes(UTF_8);
+            if (offset + 2 + bytes.length > HEADER_BYTES) {
+                throw new IllegalStateException("Channel names do not fit in the MatchLogger header");
+            }
+            buffer.putShort(offset, (short) bytes.length);
+            for (int k = 0; k < bytes.length; k++) {
+                buffer.put(offset + 2 + k, bytes[k]);
+            }
+            offset += 2 + bytes.length;
+        }
+
+        written = 0;
+        recordOffset = HEADER_BYTES;
+        lastTimestampNanos = 0;
+
+        running = true;
+        forceThread = new Thread(this::forceLoop, "MatchLogger");
+        forceThread.setDaemon(true);
+        forceThread.start();
+    }
+
+    /** Set a channel's value for the record being built.  Values are stored as floats. */
+    public void set(int channel, double value) {
+        if (buffer != null) {
+            buffer.putFloat(recordOffset + VALUES_OFFSET + 4 * channel, (float) value);
+        }
+    }
+
+    /**
+     * Finish this cycle's record and move on to the next.  Channels not set this cycle keep whatever the
+     * slot held before, so set every channel every cycle.
+     */
+    public void write(long timestampNanos) {
+        if (buffer == null) {
+            return;
+        }
+        long period = lastTimestampNanos == 0 ? 0 : (timestampNanos - lastTimestampNanos) / 1000;
+        lastTimestampNanos = timestampNanos;
+
+        buffer.putLong(recordOffset + TIMESTAMP_OFFSET, timestampNanos);
+        buffer.putInt(recordOffset + PERIOD_OFFSET, (int) Math.min(period, Integer.MAX_VALUE));
+        buffer.putInt(recordOffset + SEQUENCE_OFFSET, (int) written);
+
+        written++;
+        buffer.putLong(WRITTEN_OFFSET, written);
+        recordOffset = HEADER_BYTES + (int) (written % capacity) * recordBytes;
+    }
+
+    /** Records written since open(), including any that have been overwritten. */
+    public long recordsWritten() {
+        return written;
+    }
+
+    /**
+     * Stop the background flush, force everything to storage and close the file.  Call after the loop.
+     */
+    public void close() {
+        running = false;
+        if (forceThread != null) {
+            forceThread.interrupt();
+            try {
+                forceThread.join(FORCE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            forceThread = null;
+        }
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+        closeFile();
+    }
+
+    private void forceLoop() {
+        while (running) {
+            try {
+                Thread.sleep(FORCE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            MappedByteBuffer b = buffer;
+            if (b != null) {
+                b.force();
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            RobotLog.ee("MatchLogger", e, "failed to close %s", fileFor(name).getPath());
+        }
+        file = null;
+    }
+}
@@ -0,0 +1,187 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Mecanum drive kinematics and output shaping, shared by PrometheusDriver and Auto.
+ *
+ * Commands are robot-relative (axial = forward, lateral = right, yaw = clockwise), each as a fraction of
+ * full speed.  drive() then:
+ *   1. limits how fast each axis may change (slew limit), so the robot does not lurch or tip,
+ *   2. converts the axes to wheel speeds and accelerations (inverse kinematics),
+ *   3. turns those into wheel powers with a kS / kV / kA feedforward,
+ *   4. scales the powers by NOMINAL_VOLTAGE / battery voltage, so the same command gives the same speed
+ *      on a fresh or a tired battery, and
+ *   5. normalizes so no wheel is asked for more than full power.
+ *
+ * driveFieldRelative() takes the translation relative to the field instead (see FieldHeading) and
+ * rotates it into robot axes first.
+ *
+ * All intermediate values go into preallocated arrays, so none of this allocates.
+ */
+public class MecanumDrive {
+
+    // Battery voltage the feedforward gains were tuned at
+    static final double NOMINAL_VOLTAGE = 12.0;
+
+    // Feedforward, as a fraction of full power at NOMINAL_VOLTAGE
+    static final double K_S = 0.04;  // Static friction, added in the direction of travel
+    static final double K_V = 1.0;   // Per unit of commanded wheel speed
+    static final double K_A = 0.0;   // Per unit of commanded wheel speed per second
+
+    // Below this commanded wheel speed kS is left off, so a centred stick really is stopped
+    static final double K_S_DEADBAND = 0.02;
+
+    // Largest change per second of each axis command (full stick in ~0.2 s)
+    static final double MAX_AXIAL_RATE   = 5.0;
+    static final double MAX_LATERAL_RATE = 5.0;
+    static final double MAX_YAW_RATE     = 8.0;
+
+    // Longest time step the slew limiter will take in one update
+    static final double MAX_DT = 0.05;
+
+    // Wheel order used by every array in this class
+    public static final int LEFT_FRONT  = 0;
+    public static final int LEFT_BACK   = 1;
+    public static final int RIGHT_FRONT = 2;
+    public static final int RIGHT_BACK  = 3;
+
+    private final CachedMotor leftFront, leftBack, rightFront, rightBack;
+
+    // Slew-limited axis commands
+    private double axial = 0, lateral = 0, yaw = 0;
+    private long lastNanos = 0;
+
+    private final double[] wheelSpeeds = new double[4];
+    private final double[] wheelAccels = new double[4];
+    private final double[] wheelPowers = new double[4];
+
+    public MecanumDrive(PrometheusHardware robot) {
+        this.leftFront  = robot.leftFrontDrive;
+        this.leftBack   = robot.leftBackDrive;
+        this.rightFront = robot.rightFrontDrive;
+        this.rightBack  = robot.rightBackDrive;
+    }
+
+    /**
+     * Robot axes to wheel values.  out is indexed by LEFT_FRONT, LEFT_BACK, RIGHT_FRONT, RIGHT_BACK.
+     */
+    public static void inverseKinematics(double axial, double lateral, double yaw, double[] out) {
+        out[LEFT_FRONT]  = axial + lateral + yaw;
+        out[LEFT_BACK]   = axial - lateral + yaw;
+        out[RIGHT_FRONT] = axial - lateral - yaw;
+        out[RIGHT_BACK]  = axial + lateral - yaw;
+    }
+
+    /**
+     * Wheel values to robot axes.  out is { axial, lateral, yaw } in the same units as the wheel values.
+     */
+    public static void forwardKinematics(double leftFront, double leftBack,
+                                         double rightFront, double rightBack, double[] out) {
+        out[0] = (leftFront + leftBack + rightFront + rightBack) / 4.0;
+        out[1] = (leftFront - leftBack - rightFront + rightBack) / 4.0;
+        out[2] = (leftFront + leftBack - rightFront - rightBack) / 4.0;
+    }
+
+    /**
+     * Measured robot velocity from this cycle's drive encoders, as { axial, lateral, yaw } in ticks/s.
+     */
+    public static void measuredVelocity(HardwareSnapshot sensors, double[] out) {
+        forwardKinematics(sensors.leftFrontVelocity(), sensors.leftBackVelocity(),
+                sensors.rightFrontVelocity(), sensors.rightBackVelocity(), out);
+    }
+
+    /**
+     * Drive with robot-relative axis commands, each -1 to 1.  Call once per loop.
+     */
+    public void drive(double axialCommand, double lateralCommand, double yawCommand, HardwareSnapshot sensors) {
+        long now = sensors.timestampNanos();
+        double dt = lastNanos == 0 ? 0 : Math.min((now - lastNanos) / 1e9, MAX_DT);
+        lastNanos = now;
+
+        // 1. Slew limit each axis
+        double newAxial   = slew(axial, axialCommand, MAX_AXIAL_RATE * dt);
+        double newLateral = slew(lateral, lateralCommand, MAX_LATERAL_RATE * dt);
+        double newYaw     = slew(yaw, yawCommand, MAX_YAW_RATE * dt);
+
+        // 2. Wheel speeds and accelerations
+        inverseKinematics(newAxial, newLateral, newYaw, wheelSpeeds);
+        if (dt > 0) {
+            inverseKinematics((newAxial - axial) / dt, (newLateral - lateral) / dt, (newYaw - yaw) / dt,
+                    wheelAccels);
+        } else {
+            inverseKinematics(0, 0, 0, wheelAccels);
+        }
+        axial = newAxial;
+        lateral = newLateral;
+        yaw = newYaw;
+
+        // 3 & 4. Feedforward with battery compensation
+        double voltage = sensors.batteryVoltage();
+        double compensation = voltage > 1.0 ? NOMINAL_VOLTAGE / voltage : 1.0;
+
+        double max = 1.0;
+        for (int i = 0; i < 4; i++) {
+            double speed = wheelSpeeds[i];
+            double power = K_V * speed + K_A * wheelAccels[i];
+            if (Math.abs(speed) > K_S_DEADBAND) {
+                power += Math.copySign(K_S, speed);
+            }
+            power *= compensation;
+            wheelPowers[i] = power;
+            max = Math.max(max, Math.abs(power));
+        }
+
+        // 5. Keep every wheel within full power, preserving the ratios between them
+        for (int i = 0; i < 4; i++) {
+            wheelPowers[i] /= max;
+        }
+
+        setPowers();
+    }
+
+    /**
+     * Drive with field-relative translation (forward = away from the driver, right = to the driver's
+     * right) and a clockwise turn command, each -1 to 1.  heading is the robot's field heading in radians,
+     * counter-clockwise, as from FieldHeading.getHeading().  Call once per loop instead of drive().
+     */
+    public void driveFieldRelative(double forward, double right, double yawCommand, double heading,
+                                   HardwareSnapshot sensors) {
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        drive(forward * cos - right * sin, forward * sin + right * cos, yawCommand, sensors);
+    }
+
+    /**
+     * Stop immediately, skipping the slew limit.
+     */
+    public void stop() {
+        axial = 0;
+        lateral = 0;
+        yaw = 0;
+        for (int i = 0; i < 4; i++) {
+            wheelPowers[i] = 0;
+        }
+        setPowers();
+    }
+
+    /** The powers sent on the last drive() or stop(), indexed by LEFT_FRONT etc.  Do not modify. */
+    public double[] getWheelPowers() {
+        return wheelPowers;
+    }
+
+    private void setPowers() {
+        leftFront.setPower(wheelPowers[LEFT_FRONT]);
+        leftBack.setPower(wheelPowers[LEFT_BACK]);
+        rightFront.setPower(wheelPowers[RIGHT_FRONT]);
+        rightBack.setPower(wheelPowers[RIGHT_BACK]);
+    }
+
+    private static double slew(double current, double target, double maxStep) {
+        double step = target - current;
+        if (step > maxStep) {
+            step = maxStep;
+        } else if (step < -maxStep) {
+            step = -maxStep;
+        }
+        return current + step;
+    }
+}
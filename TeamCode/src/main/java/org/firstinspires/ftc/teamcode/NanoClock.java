@@ -0,0 +1,13 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Source of the timestamps PrometheusHardware puts in each HardwareSnapshot.  On the robot this is
+ * System.nanoTime(); the sim tests swap in SimRobot's simulated time so they run faster than real time.
+ * Commands' waits take one too, normally robot::cycleNanos.
+ */
+public interface NanoClock {
+
+    NanoClock SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
@@ -0,0 +1,202 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.gobilda.GoBildaPinpointDriver;
+
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit;
+import org.firstinspires.ftc.robotcore.external.navigation.DistanceUnit;
+
+/*
+ * Field pose estimate, updated every control cycle.
+ *
+ * Two sources are supported:
+ *   - a goBILDA Pinpoint named "pinpoint" (see SensorGoBildaPinpoint), if one is in the configuration.
+ *     The Pinpoint integrates its own pods and IMU, so we only read the result.
+ *   - otherwise the four drive-motor encoders from the bulk read.  Their deltas go through the mecanum
+ *     forward kinematics and are integrated here.
+ *
+ * Integration assumes the robot moved along a constant-curvature arc since the last update (the SE(2)
+ * pose exponential), which stays accurate while turning and driving at the same time, unlike adding up
+ * straight-line steps.
+ *
+ * Conventions: x forward, y left, heading counter-clockwise in radians, all relative to where the
+ * robot started (or the last setPose()).  The pose lives in primitive fields; nothing is allocated per
+ * update.
+ *
+ * setPose() never writes to the Pinpoint.  Localizer calls it for every accepted AprilTag, and a
+ * Pinpoint setPosition() is a blocking I2C write plus a Pose2D per call.  Instead the Pinpoint keeps
+ * counting from where it was reset, and setPose() re-anchors a rigid offset (a rotation and a
+ * translation) that maps its readings onto the corrected pose, so a correction costs a few multiplies.
+ */
+public class Odometry {
+
+    // Drive wheel encoders: goBILDA 5203 312 RPM (537.7 counts/rev) with 104 mm mecanum wheels
+    static final double DRIVE_TICKS_PER_REV = 537.7;
+    static final double DRIVE_WHEEL_DIAMETER_IN = 104 / 25.4;
+    static final double DRIVE_TICKS_PER_INCH = DRIVE_TICKS_PER_REV / (Math.PI * DRIVE_WHEEL_DIAMETER_IN);
+
+    // Half of (track width + wheel base), in inches: wheel travel per radian of rotation
+    static final double DRIVE_TURN_RADIUS_IN = (14.0 + 12.0) / 2.0;
+
+    // Mecanum rollers slip sideways, so strafing covers less ground than the wheels turn
+    static final double LATERAL_MULTIPLIER = 1.1;
+
+    private final GoBildaPinpointDriver pinpoint;
+
+    // Pose (inches, radians)
+    private double x = 0, y = 0, heading = 0;
+
+    // Pinpoint only: its last raw reading, and the offset from its frame to ours
+    private double rawX = 0, rawY = 0, rawHeading = 0;
+    private double offsetX = 0, offsetY = 0, offsetHeading = 0;
+
+    // Field-relative velocity (inches/s, radians/s)
+    private double xVelocity = 0, yVelocity = 0, headingVelocity = 0;
+
+    // Previous drive encoder readings
+    private int lastLf, lastLb, lastRf, lastRb;
+    private boolean haveLastEncoders = false;
+    private long lastNanos = 0;
+
+    private final double[] robotDelta = new double[3];
+
+    public Odometry(PrometheusHardware robot) {
+        pinpoint = robot.pinpoint;
+        if (pinpoint != null) {
+            // Pod offsets and type as in SensorGoBildaPinpoint; measure these on the robot
+            pinpoint.setOffsets(-84.0, -168.0, DistanceUnit.MM);
+            pinpoint.setEncoderResolution(GoBildaPinpointDriver.GoBildaOdometryPods.goBILDA_4_BAR_POD);
+            pinpoint.setEncoderDirections(GoBildaPinpointDriver.EncoderDirection.FORWARD,
+                                          GoBildaPinpointDriver.EncoderDirection.FORWARD);
+            pinpoint.resetPosAndIMU();
+        }
+    }
+
+    public boolean usesPinpoint() {
+        return pinpoint != null;
+    }
+
+    /**
+     * Move the estimate to a known pose (inches, radians).  Cheap enough to call every loop.
+     */
+    public void setPose(double x, double y, double heading) {
+        this.x = x;
+        this.y = y;
+        this.heading = normalize(heading);
+        if (pinpoint != null) {
+            // The offset that takes the last Pinpoint reading to this pose
+            offsetHeading = normalize(heading - rawHeading);
+            double cos = Math.cos(offsetHeading);
+            double sin = Math.sin(offsetHeading);
+            offsetX = x - (rawX * cos - rawY * sin);
+            offsetY = y - (rawX * sin + rawY * cos);
+        }
+    }
+
+    /**
+     * Advance the estimate to this cycle.  Call once per loop after PrometheusHardware.update().
+     * With a Pinpoint this also reads it over I2C.
+     */
+    public void update(HardwareSnapshot sensors) {
+        long now = sensors.timestampNanos();
+        double dt = lastNanos == 0 ? 0 : (now - lastNanos) / 1e9;
+        lastNanos = now;
+
+        if (pinpoint != null) {
+            pinpoint.update();
+            double newX = pinpoint.getPosX(DistanceUnit.INCH);
+            double newY = pinpoint.getPosY(DistanceUnit.INCH);
+            double newHeading = pinpoint.getHeading(AngleUnit.RADIANS);
+
+            // Velocity from the raw motion, so a setPose() in between does not show up as a jump
+            double cos = Math.cos(offsetHeading);
+            double sin = Math.sin(offsetHeading);
+            if (dt > 0) {
+                double dx = newX - rawX;
+                double dy = newY - rawY;
+                xVelocity = (dx * cos - dy * sin) / dt;
+                yVelocity = (dx * sin + dy * cos) / dt;
+                headingVelocity = normalize(newHeading - rawHeading) / dt;
+            }
+            rawX = newX;
+            rawY = newY;
+            rawHeading = newHeading;
+
+            x = offsetX + newX * cos - newY * sin;
+            y = offsetY + newX * sin + newY * cos;
+            heading = normalize(newHeading + offsetHeading);
+            return;
+        }
+
+        int lf = sensors.leftFrontPosition();
+        int lb = sensors.leftBackPosition();
+        int rf = sensors.rightFrontPosition();
+        int rb = sensors.rightBackPosition();
+        if (!haveLastEncoders) {
+            lastLf = lf;
+            lastLb = lb;
+            lastRf = rf;
+            lastRb = rb;
+            haveLastEncoders = true;
+            return;
+        }
+
+        // Wheel deltas -> robot-relative { forward, right, clockwise } in inches
+        MecanumDrive.forwardKinematics(
+                (lf - lastLf) / DRIVE_TICKS_PER_INCH, (lb - lastLb) / DRIVE_TICKS_PER_INCH,
+                (rf - lastRf) / DRIVE_TICKS_PER_INCH, (rb - lastRb) / DRIVE_TICKS_PER_INCH, robotDelta);
+        lastLf = lf;
+        lastLb = lb;
+        lastRf = rf;
+        lastRb = rb;
+
+        double forward = robotDelta[0];
+        double left = -robotDelta[1] * LATERAL_MULTIPLIER;
+        double turn = -robotDelta[2] / DRIVE_TURN_RADIUS_IN;
+
+        double oldX = x, oldY = y;
+        integrate(forward, left, turn);
+        if (dt > 0) {
+            xVelocity = (x - oldX) / dt;
+            yVelocity = (y - oldY) / dt;
+            headingVelocity = turn / dt;
+        }
+    }
+
+    /**
+     * Apply a robot-relative motion (forward and left in inches, counter-clockwise turn in radians),
+     * treating it as a constant-curvature arc.
+     */
+    void integrate(double forward, double left, double turn) {
+        // sin(t)/t and (1 - cos(t))/t, with Taylor series near zero to avoid dividing by it
+        double s, c;
+        if (Math.abs(turn) < 1e-6) {
+            s = 1.0 - turn * turn / 6.0;
+            c = turn / 2.0;
+        } else {
+            s = Math.sin(turn) / turn;
+            c = (1.0 - Math.cos(turn)) / turn;
+        }
+        double dx = s * forward - c * left;
+        double dy = c * forward + s * left;
+
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        x += dx * cos - dy * sin;
+        y += dx * sin + dy * cos;
+        heading = normalize(heading + turn);
+    }
+
+    public double getX() { return x; }
+    public double getY() { return y; }
+    public double getHeading() { return heading; }
+
+    public double getXVelocity() { return xVelocity; }
+    public double getYVelocity() { return yVelocity; }
+    public double getHeadingVelocity() { return headingVelocity; }
+
+    static double normalize(double radians) {
+        while (radians > Math.PI) radians -= 2 * Math.PI;
+        while (radians <= -Math.PI) radians += 2 * Math.PI;
+        return radians;
+    }
+}
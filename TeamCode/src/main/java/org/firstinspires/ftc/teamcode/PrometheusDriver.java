@@ -2,276 +2,445 @@ package org.firstinspires.ftc.teamcode;
 
 import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
-import com.qualcomm.robotcore.hardware.ColorSensor;
-import com.qualcomm.robotcore.hardware.DcMotor;
-import com.qualcomm.robotcore.hardware.Servo;
-import com.qualcomm.robotcore.util.ElapsedTime;
+import com.qualcomm.robotcore.hardware.Gamepad;
+import com.qualcomm.robotcore.hardware.HardwareMap;
 
 @TeleOp(name = "Mecanum Drive + Spindexer + Kicker + Dual Outtake + Intake", group = "Linear Opmode")
 public class PrometheusDriver extends LinearOpMode {
 
-    // REV Through Bore Encoder constants (8192 ticks/rev on the shaft)
-    static final double TICKS_PER_REV = 8192;
-    static final int TICKS_FOR_60_DEGREES = (int)(TICKS_PER_REV / 6.0);
-    static final int TICKS_FOR_120_DEGREES = (int)(TICKS_PER_REV / 3.0);
-    static final int TICKS_FOR_180_DEGREES = (int)(TICKS_PER_REV / 2.0);
-
-    // Kicker constants
-    static final double KICKER_RETRACED = 0.0;
-    static final double KICKER_EXTENDED = 0.22;
-
-    // Timing constants for the sequences
-    static final double SPINUP_TIME = 0.8; 
-    static final double KICK_TIME = 0.2;
-    static final double RETRACT_TIME = 0.6; 
-    static final double INTAKE_WAIT_TIME = 0.5; // Time for ball to enter spindexer before rotating
-
-    private enum KickState {
-        IDLE,
-        SPINUP,
-        KICK,
-        RETRACT
-    }
-
-    private enum IntakeState {
-        IDLE,
-        WAIT_FOR_BALL
-    }
+    // Driver Station updates per second
+    static final double TELEMETRY_RATE = 5;
+
+    // Color sensor reads per second, on their own thread
+    static final double COLOR_RATE = 50;
+
+    // IMU polls per second for field-relative driving, on their own thread
+    static final double IMU_RATE = 25;
+
+    // AprilTag detections are collected this often (at least the camera frame rate)
+    static final double VISION_RATE = 30;
+
+    // Pause between init-loop passes (alliance selection)
+    static final long INIT_LOOP_MS = 50;
+
+    // Hardware and subsystems; package-private where the sim tests look at them
+    PrometheusHardware robot;
+    private Spindexer spindexer;
+    private MecanumDrive drive;
+    private Odometry odometry;
+    private Flywheel flywheel;
+    private ArtifactClassifier classifier;
+    private SubsystemScheduler scheduler;
+    private FieldHeading fieldHeading;
+    private boolean fieldRelative;
+    private AprilTagVision vision;
+    private VisionManager cameras;
+    private Turret turret;
+    private ShotTable shots;
+    private Handoff handoff;
+    KickSequence kick;
+    IntakeSequence intake;
+
+    // What is in each spindexer slot
+    final SpindexerSlots slots = new SpindexerSlots();
+
+    private GamepadInput driver;
+    private ArtifactColor preferredColor;
+
+    private LoopProfiler profiler;
+    private int readSection, driveSection, intakeSection, aimSection, kickSection, colorSection,
+            writeSection, logSection, telemetrySection;
+
+    private MatchLogger log;
+    private int lfChannel, lbChannel, rfChannel, rbChannel,
+            lfPowerChannel, lbPowerChannel, rfPowerChannel, rbPowerChannel,
+            spindexerChannel, spindexerGoalChannel, flywheel1Channel, flywheel2Channel,
+            intakePowerChannel, kickerChannel, kickStateChannel, intakeStateChannel, slotsChannel,
+            redChannel, greenChannel, blueChannel, colorChannel, voltageChannel,
+            xChannel, yChannel, headingChannel, fieldHeadingChannel, turretChannel, turretTargetChannel;
+
+    private TelemetryPublisher publisher;
+    private int statusLine, kickStateLine, intakeCountLine, ballColorLine, slotsLine, preferLine, rgbLine,
+            hueLine, spindexerLine, poseLine, driveModeLine, fieldHeadingLine, flywheelLine, turretLine,
+            aimLine, intakePowerLine, writesSavedLine, loopLine;
 
     @Override
     public void runOpMode() {
-        // Initialize drive motors
-        DcMotor leftFrontDrive  = hardwareMap.get(DcMotor.class, "left_front_drive");
-        DcMotor leftBackDrive   = hardwareMap.get(DcMotor.class, "left_back_drive");
-        DcMotor rightFrontDrive = hardwareMap.get(DcMotor.class, "right_front_drive");
-        DcMotor rightBackDrive  = hardwareMap.get(DcMotor.class, "right_back_drive");
+        // Map and configure all hardware, with hubs in manual bulk-read mode.  Kicker positions, sequence
+        // timing and color thresholds, and the shot table, are saved on the hub.
+        initialize(new PrometheusHardware(hardwareMap), hardwareMap, Calibration.load(), ShotTable.load(), true);
+        log.open();
+
+        // Alliance, for which goal to aim at: X blue, B red, until start
+        Alliance alliance = Alliance.last();
+        while (opModeInInit()) {
+            if (gamepad1.x) {
+                alliance = Alliance.BLUE;
+            } else if (gamepad1.b) {
+                alliance = Alliance.RED;
+            }
+            vision.setGoalTag(alliance.goalTag);
 
-        // Initialize spindexer motor
-        DcMotor spindexer = hardwareMap.get(DcMotor.class, "spindexer");
-        spindexer.setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+            telemetry.addData("Status", "Initialized");
+            if (handoff != null) {
+                telemetry.addData("Resumed", "from %s, %.0f s ago, slots %s",
+                        handoff.source, handoff.ageSeconds(), slots.describe());
+            }
+            telemetry.addData("Alliance", "%s, goal tag %d (X blue, B red)", alliance, alliance.goalTag);
+            telemetry.update();
+            sleep(INIT_LOOP_MS);
+        }
+        alliance.remember();
 
-        // Initialize outtake motors (Flywheels)
-        DcMotor outtakeMotor1 = hardwareMap.get(DcMotor.class, "outtake_motor1");
-        DcMotor outtakeMotor2 = hardwareMap.get(DcMotor.class, "outtake_motor2");
+        publisher.setText(statusLine, "Running");
+        publisher.start();
+        scheduler.start();
 
-        // Initialize outtake turning motor
-        DcMotor outtakeTurnMotor = hardwareMap.get(DcMotor.class, "outtake_turn");
+        while (opModeIsActive()) {
+            cycle(gamepad1);
+        }
+        finish();
+    }
 
-        // Initialize intake motor
-        DcMotor intakeMotor = hardwareMap.get(DcMotor.class, "intake_motor");
+    /**
+     * Everything before the start except opening the match log and picking the alliance.  Split out of
+     * runOpMode() with cycle() so the sim tests can run the same code on SimRobot.
+     * @param backgroundReads read the color sensor and IMU on scheduler threads (the robot), or inline in
+     *                        each cycle (the sim tests, so runs are repeatable)
+     */
+    void initialize(PrometheusHardware robot, HardwareMap hardwareMap, Calibration calibration, ShotTable shots,
+                    boolean backgroundReads) {
+        this.robot = robot;
+        this.shots = shots;
 
-        // Initialize kicker servos
-        Servo kickerServo1 = hardwareMap.get(Servo.class, "kicker_1");
-        Servo kickerServo2 = hardwareMap.get(Servo.class, "kicker_2");
+        // Configure spindexer to use encoder
+        spindexer = new Spindexer(robot.spindexer);
 
-        // Initialize Color Sensor
-        ColorSensor ballSensor = hardwareMap.get(ColorSensor.class, "ball_sensor");
+        // Mecanum kinematics, feedforward and battery compensation
+        drive = new MecanumDrive(robot);
 
-        // Set directions
-        leftFrontDrive.setDirection(DcMotor.Direction.FORWARD);
-        leftBackDrive.setDirection(DcMotor.Direction.FORWARD);
-        rightFrontDrive.setDirection(DcMotor.Direction.REVERSE);
-        rightBackDrive.setDirection(DcMotor.Direction.REVERSE);
+        // Pose tracking (Pinpoint if fitted, drive encoders otherwise)
+        odometry = new Odometry(robot);
 
-        // Outtake motors
-        outtakeMotor1.setDirection(DcMotor.Direction.FORWARD);
-        outtakeMotor2.setDirection(DcMotor.Direction.REVERSE);
+        // Closed-loop flywheels
+        flywheel = new Flywheel(robot.outtakeMotor1, robot.outtakeMotor2);
 
-        // Kickers: One is reversed to move in sync physically
-        kickerServo1.setDirection(Servo.Direction.REVERSE);
-        kickerServo2.setDirection(Servo.Direction.FORWARD);
+        // Ball color, read only while a slot is lined up with the sensor
+        classifier = new ArtifactClassifier(calibration);
 
-        // Configure spindexer to use encoder
-        spindexer.setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
-        spindexer.setTargetPosition(0);
-        spindexer.setMode(DcMotor.RunMode.RUN_TO_POSITION);
-        spindexer.setPower(0.5);
-
-        // Initialize kicker position
-        kickerServo1.setPosition(KICKER_RETRACED);
-        kickerServo2.setPosition(KICKER_RETRACED);
-
-        // Track state for buttons and sequences
-        boolean lastYState = false;
-        boolean lastAState = false;
-        boolean lastXState = false;
-        int spindexerTarget = 0;
-        int ballsKicked = 0;
-        int intakeCount = 0;
-
-        KickState currentKickState = KickState.IDLE;
-        IntakeState currentIntakeState = IntakeState.IDLE;
-        
-        ElapsedTime kickTimer = new ElapsedTime();
-        ElapsedTime intakeTimer = new ElapsedTime();
+        // Slow I2C reads run on their own threads so they never hold up the drive loop
+        scheduler = new SubsystemScheduler();
+        if (backgroundReads) {
+            robot.readColorSensorOn(scheduler, COLOR_RATE);
+        }
 
-        telemetry.addData("Status", "Initialized");
-        telemetry.update();
+        // Heading for field-relative driving (left stick button switches to robot-relative)
+        fieldHeading = new FieldHeading(robot, odometry);
+        if (backgroundReads) {
+            fieldHeading.readImuOn(scheduler, IMU_RATE);
+        }
+        fieldRelative = true;
+
+        // Goal tag bearings for the turret; tags are not looked for while intaking.  The goal is the
+        // alliance's, picked during init.
+        vision = new AprilTagVision(hardwareMap);
+        vision.setGoalTag(Alliance.last().goalTag);
+        vision.readOn(scheduler, VISION_RATE);
+        cameras = new VisionManager();
+        int webcam = cameras.addPortal(vision.portal());
+        cameras.addProcessor(webcam, vision.processor(),
+                VisionManager.Phase.DRIVE, VisionManager.Phase.AIM, VisionManager.Phase.SHOOT);
+
+        // Auto-aim turret (right stick button toggles); must be centered at init
+        turret = new Turret(robot.outtakeTurnMotor, odometry, calibration);
+        turret.reset();
+        turret.setAutoAim(vision.isAvailable());
+
+        // Pick up where Auto (or the last TeleOp run) stopped.  Otherwise home the spindexer here, and make
+        // the way the robot faces at the first cycle "away from the driver"; the IMU keeps its yaw across
+        // OpModes, so without this field-relative driving starts rotated by wherever the hub last was.
+        handoff = Handoff.take();
+        if (handoff != null) {
+            HardwareSnapshot initial = robot.update();
+            spindexer.resume(initial, handoff.spindexerPosition, handoff.spindexerGoal);
+            odometry.setPose(handoff.x, handoff.y, handoff.heading);
+            slots.setBits(handoff.slotBits);
+            fieldHeading.setHeading(handoff.heading);
+        } else {
+            spindexer.reset();
+            fieldHeading.setHeading(0);
+        }
 
-        waitForStart();
+        // Automated volley and intake sequences
+        kick = new KickSequence(robot, flywheel, spindexer, slots, calibration);
+        intake = new IntakeSequence(robot, spindexer, slots, calibration);
+        kick.retract();
+        kick.setFireGate(() -> !turret.isAutoAim() || turret.isOnTarget());
+
+        robot.flush();
+
+        // Gamepad 1, read once per cycle; squared sticks for finer control at low speed
+        driver = new GamepadInput();
+        driver.setStickCurve(GamepadInput.DEFAULT_DEADBAND, 2.0);
+        preferredColor = ArtifactColor.NONE; // Color to fire first, NONE for nearest
+
+        // Loop timing, one histogram per part of the loop
+        profiler = new LoopProfiler();
+        readSection      = profiler.addSection("read");
+        driveSection     = profiler.addSection("drive");
+        intakeSection    = profiler.addSection("intake");
+        aimSection       = profiler.addSection("aim");
+        kickSection      = profiler.addSection("kick");
+        colorSection     = profiler.addSection("color");
+        writeSection     = profiler.addSection("write");
+        logSection       = profiler.addSection("log");
+        telemetrySection = profiler.addSection("telemetry");
+
+        // Every cycle to /sdcard/FIRST/data/match_PrometheusDriver.bin, decode with MatchLogDecoder
+        log = new MatchLogger("PrometheusDriver");
+        lfChannel            = log.addChannel("lf_pos");
+        lbChannel            = log.addChannel("lb_pos");
+        rfChannel            = log.addChannel("rf_pos");
+        rbChannel            = log.addChannel("rb_pos");
+        lfPowerChannel       = log.addChannel("lf_power");
+        lbPowerChannel       = log.addChannel("lb_power");
+        rfPowerChannel       = log.addChannel("rf_power");
+        rbPowerChannel       = log.addChannel("rb_power");
+        spindexerChannel     = log.addChannel("spindexer_pos");
+        spindexerGoalChannel = log.addChannel("spindexer_goal");
+        flywheel1Channel     = log.addChannel("flywheel1_vel");
+        flywheel2Channel     = log.addChannel("flywheel2_vel");
+        intakePowerChannel   = log.addChannel("intake_power");
+        kickerChannel        = log.addChannel("kicker_pos");
+        kickStateChannel     = log.addChannel("kick_state");
+        intakeStateChannel   = log.addChannel("intake_state");
+        slotsChannel         = log.addChannel("slots");
+        redChannel           = log.addChannel("red");
+        greenChannel         = log.addChannel("green");
+        blueChannel          = log.addChannel("blue");
+        colorChannel         = log.addChannel("ball_color");
+        voltageChannel       = log.addChannel("battery_v");
+        xChannel             = log.addChannel("x");
+        yChannel             = log.addChannel("y");
+        headingChannel       = log.addChannel("heading");
+        fieldHeadingChannel  = log.addChannel("field_heading");
+        turretChannel        = log.addChannel("turret_angle");
+        turretTargetChannel  = log.addChannel("turret_target");
+
+        // Telemetry is formatted and sent from a background thread; the loop only fills in values
+        publisher = new TelemetryPublisher(telemetry, TELEMETRY_RATE);
+        statusLine        = publisher.addLine("Status");
+        kickStateLine     = publisher.addLine("Kick State");
+        intakeCountLine   = publisher.addLine("Intake Count", "%.0f");
+        ballColorLine     = publisher.addLine("Ball Color");
+        slotsLine         = publisher.addLine("Slots");
+        preferLine        = publisher.addLine("Prefer");
+        rgbLine           = publisher.addLine("RGB", "R: %.0f, G: %.0f, B: %.0f");
+        hueLine           = publisher.addLine("Hue / Sat", "%.0f / %.2f");
+        spindexerLine     = publisher.addLine("Spindexer", "target %.0f  position %.0f");
+        poseLine          = publisher.addLine("Pose", "x %.1f  y %.1f  h %.1f");
+        driveModeLine     = publisher.addLine("Drive");
+        fieldHeadingLine  = publisher.addLine("Field Heading", "%.1f");
+        flywheelLine      = publisher.addLine("Flywheels", "%.0f / %.0f");
+        turretLine        = publisher.addLine("Turret", "angle %.1f  target %.1f");
+        aimLine           = publisher.addLine("Aim");
+        intakePowerLine   = publisher.addLine("Intake Power", "%.2f");
+        writesSavedLine   = publisher.addLine("Writes Saved", "%.0f");
+        loopLine          = publisher.addLine("Loop", LoopProfiler.REPORT_FORMAT);
+    }
 
-        while (opModeIsActive()) {
-            // --- Drive Logic (Mecanum - Gamepad 1) ---
-            double y  = -gamepad1.left_stick_y;
-            double x  =  gamepad1.left_stick_x;
-            double rx =  gamepad1.right_stick_x;
-
-            double frontLeftPower  = y + x + rx;
-            double backLeftPower   = y - x + rx;
-            double frontRightPower = y - x - rx;
-            double backRightPower  = y + x - rx;
-
-            double max = Math.max(Math.abs(frontLeftPower), Math.abs(backLeftPower));
-            max = Math.max(max, Math.abs(frontRightPower));
-            max = Math.max(max, Math.abs(backRightPower));
-
-            if (max > 1.0) {
-                frontLeftPower  /= max;
-                backLeftPower   /= max;
-                frontRightPower /= max;
-                backRightPower  /= max;
-            }
+    /** One control cycle, driven by `gamepad`. */
+    void cycle(Gamepad gamepad) {
+        profiler.startLoop();
+
+        // Read every sensor once for this cycle
+        HardwareSnapshot sensors = robot.update();
+        flywheel.update(sensors);
+        spindexer.update(sensors);
+        odometry.update(sensors);
+        fieldHeading.update(sensors);
+        driver.update(gamepad, sensors.timestampNanos());
+        profiler.lap(readSection);
+
+        // --- Drive Logic (Mecanum - Gamepad 1) ---
+        double y  = driver.leftY();
+        double x  = driver.leftX();
+        double rx = driver.rightX();
+
+        // Back: the robot is facing away from the driver now.  Left stick button: field / robot relative.
+        if (driver.pressed(GamepadInput.BACK)) {
+            fieldHeading.setHeading(0);
+        }
+        if (driver.pressed(GamepadInput.LEFT_STICK_BUTTON)) {
+            fieldRelative = !fieldRelative;
+        }
 
-            leftFrontDrive.setPower(frontLeftPower);
-            leftBackDrive.setPower(backLeftPower);
-            rightFrontDrive.setPower(frontRightPower);
-            rightBackDrive.setPower(backRightPower);
-
-            // --- Intake Logic (Gamepad 1) ---
-            // Manual overrides for intake
-            if (gamepad1.right_bumper) {
-                intakeMotor.setPower(1.0);
-                currentIntakeState = IntakeState.IDLE;
-            } else if (gamepad1.left_bumper) {
-                intakeMotor.setPower(-1.0);
-                currentIntakeState = IntakeState.IDLE;
-            } else if (gamepad1.b) {
-                intakeMotor.setPower(0.0);
-                currentIntakeState = IntakeState.IDLE;
-            }
+        if (fieldRelative) {
+            drive.driveFieldRelative(y, x, rx, fieldHeading.getHeading(), sensors);
+        } else {
+            drive.drive(y, x, rx, sensors);
+        }
+        profiler.lap(driveSection);
 
-            // --- Spindexer / Automated Intake Logic (Gamepad 1) ---
-            
-            // Start Automated Spindexer Sequence for 3 balls (Button Y)
-            if (gamepad1.y && !lastYState && currentIntakeState == IntakeState.IDLE && currentKickState == KickState.IDLE) {
-                currentIntakeState = IntakeState.WAIT_FOR_BALL;
-                intakeCount = 0;
-                intakeTimer.reset();
-                intakeMotor.setPower(1.0); 
-            }
+        // --- Ball Color Detection ---
+        ArtifactColor ballColor = classifier.update(sensors);
 
-            // Handle Automated Intake State Machine (Cycles 3 times)
-            if (currentIntakeState == IntakeState.WAIT_FOR_BALL) {
-                if (intakeTimer.seconds() >= INTAKE_WAIT_TIME) {
-                    spindexerTarget += TICKS_FOR_120_DEGREES;
-                    spindexer.setTargetPosition(spindexerTarget);
-                    intakeCount++;
-                    
-                    if (intakeCount < 3) {
-                        intakeTimer.reset();
-                    } else {
-                        currentIntakeState = IntakeState.IDLE;
-                    }
-                }
-            }
+        // A color seen at the intake belongs to the slot lined up there
+        int intakeSlot = SpindexerSlots.slotAt(SpindexerSlots.INTAKE_STEP, spindexer.rotationSteps());
+        if (ballColor != ArtifactColor.NONE && intakeSlot >= 0) {
+            slots.load(intakeSlot, ballColor);
+        }
 
-            // Zero the Indexing (Accumulator Strategy - Button X)
-            if (gamepad1.x && !lastXState) {
-                spindexerTarget = spindexer.getCurrentPosition();
-                spindexer.setTargetPosition(spindexerTarget);
-            }
+        profiler.lap(colorSection);
+
+        // --- Intake Logic (Gamepad 1) ---
+        // Manual overrides for intake
+        if (driver.held(GamepadInput.RIGHT_BUMPER)) {
+            robot.intakeMotor.setPower(1.0);
+            intake.cancel();
+        } else if (driver.held(GamepadInput.LEFT_BUMPER)) {
+            robot.intakeMotor.setPower(-1.0);
+            intake.cancel();
+        } else if (driver.held(GamepadInput.B)) {
+            robot.intakeMotor.setPower(0.0);
+            intake.cancel();
+        }
 
-            // --- Automated Kick Sequence (Gamepad 1 Button A) ---
-            switch (currentKickState) {
-                case IDLE:
-                    outtakeMotor1.setPower(0.0);
-                    outtakeMotor2.setPower(0.0);
-                    if (gamepad1.a && !lastAState && currentIntakeState == IntakeState.IDLE) {
-                        ballsKicked = 0;
-                        currentKickState = KickState.SPINUP;
-                        kickTimer.reset();
-
-                        // Move first ball 60 degrees to reach the kicker at 180 deg
-                        spindexerTarget += TICKS_FOR_60_DEGREES;
-                        spindexer.setTargetPosition(spindexerTarget);
-                    }
-                    break;
-
-                case SPINUP:
-                    outtakeMotor1.setPower(1.0);
-                    outtakeMotor2.setPower(1.0);
-                    if (kickTimer.seconds() >= SPINUP_TIME) {
-                        currentKickState = KickState.KICK;
-                        kickTimer.reset();
-                        kickerServo1.setPosition(KICKER_EXTENDED);
-                        kickerServo2.setPosition(KICKER_EXTENDED);
-                    }
-                    break;
-
-                case KICK:
-                    outtakeMotor1.setPower(1.0);
-                    outtakeMotor2.setPower(1.0);
-                    if (kickTimer.seconds() >= KICK_TIME) {
-                        ballsKicked++;
-                        kickerServo1.setPosition(KICKER_RETRACED);
-                        kickerServo2.setPosition(KICKER_RETRACED);
-
-                        if (ballsKicked < 3) {
-                            // Subsequent balls move 120 degrees
-                            spindexerTarget += TICKS_FOR_120_DEGREES;
-                            spindexer.setTargetPosition(spindexerTarget);
-
-                            currentKickState = KickState.RETRACT;
-                            kickTimer.reset();
-                        } else {
-                            // Final re-alignment: Move 60 degrees to reset slots to 0, 120, 240
-                            spindexerTarget += TICKS_FOR_60_DEGREES;
-                            spindexer.setTargetPosition(spindexerTarget);
-                            currentKickState = KickState.IDLE;
-                        }
-                    }
-                    break;
-
-                case RETRACT:
-                    outtakeMotor1.setPower(1.0);
-                    outtakeMotor2.setPower(1.0);
-                    if (kickTimer.seconds() >= RETRACT_TIME) {
-                        currentKickState = KickState.KICK;
-                        kickTimer.reset();
-                        kickerServo1.setPosition(KICKER_EXTENDED);
-                        kickerServo2.setPosition(KICKER_EXTENDED);
-                    }
-                    break;
-            }
+        // --- Spindexer / Automated Intake Logic (Gamepad 1) ---
+        
+        // Start Automated Spindexer Sequence until every slot is full (Button Y)
+        if (driver.pressed(GamepadInput.Y) && intake.isIdle() && kick.isIdle()) {
+            intake.start();
+        }
+        intake.update(sensors);
 
-            // Update button states for next loop
-            lastYState = gamepad1.y;
-            lastXState = gamepad1.x;
-            lastAState = gamepad1.a;
-
-            // --- Ball Color Detection ---
-            String ballColor = "None";
-            int r = ballSensor.red();
-            int g = ballSensor.green();
-            int b = ballSensor.blue();
-
-            // Detect Purple and Green
-            if (g > r && g > b) {
-                ballColor = "Green";
-            } else if ((r > g && b > g) || (b > r && b > g)) {
-                // Purple is a mix of Red and Blue, or sometimes just looks very Blue
-                ballColor = "Purple";
-            }
+        // Zero the Indexing (Accumulator Strategy - Button X)
+        if (driver.pressed(GamepadInput.X)) {
+            spindexer.holdHere();
+        }
 
-            // --- Telemetry ---
-            telemetry.addData("Status", "Running");
-            telemetry.addData("Kick State", currentKickState);
-            telemetry.addData("Intake Count", intakeCount);
-            telemetry.addData("Ball Color", ballColor);
-            telemetry.addData("RGB", "R: %d, G: %d, B: %d", r, g, b);
-            telemetry.addData("Spindexer Target", spindexerTarget);
-            telemetry.addData("Intake Power", intakeMotor.getPower());
-            telemetry.update();
+        // Pick which color a volley should start with
+        if (driver.pressed(GamepadInput.DPAD_LEFT)) {
+            preferredColor = ArtifactColor.GREEN;
+        } else if (driver.pressed(GamepadInput.DPAD_RIGHT)) {
+            preferredColor = ArtifactColor.PURPLE;
+        } else if (driver.pressed(GamepadInput.DPAD_DOWN)) {
+            preferredColor = ArtifactColor.NONE;
         }
+
+        profiler.lap(intakeSection);
+
+        // --- Turret Auto-Aim (Gamepad 1 Right Stick Button toggles) ---
+        if (driver.pressed(GamepadInput.RIGHT_STICK_BUTTON)) {
+            turret.setAutoAim(!turret.isAutoAim());
+        }
+        if (vision.update() && vision.fix().goalSeen) {
+            AprilTagVision.Fix fix = vision.fix();
+            turret.addVisionBearing(fix.goalBearing, fix.captureNanos, sensors);
+            shots.lookup(fix.goalRange);
+            flywheel.setShotVelocity(shots.getVelocity());
+            turret.setAimOffset(shots.getOffset());
+        }
+        turret.update(sensors);
+        profiler.lap(aimSection);
+
+        // --- Automated Kick Sequence (Gamepad 1 Button A) ---
+        if (driver.pressed(GamepadInput.A) && intake.isIdle()) {
+            kick.start(preferredColor);
+        }
+        kick.update(sensors);
+        profiler.lap(kickSection);
+
+        // Only read the color sensor while the spindexer is holding a slot still in front of it
+        boolean slotAligned = spindexer.isAtTarget()
+                && SpindexerSlots.slotAt(SpindexerSlots.INTAKE_STEP, spindexer.rotationSteps()) >= 0;
+        if (!slotAligned) {
+            classifier.restart();
+        }
+        robot.setColorSensorEnabled(slotAligned);
+
+        // Tags only while they can be used for aiming
+        if (!intake.isIdle()) {
+            cameras.setPhase(VisionManager.Phase.INTAKE);
+        } else if (!kick.isIdle()) {
+            cameras.setPhase(VisionManager.Phase.SHOOT);
+        } else {
+            cameras.setPhase(VisionManager.Phase.DRIVE);
+        }
+
+        // Send everything that changed this cycle to the hubs in one batch
+        robot.flush();
+        profiler.lap(writeSection);
+
+        // --- Match Log ---
+        double[] wheelPowers = drive.getWheelPowers();
+        log.set(lfChannel, sensors.leftFrontPosition());
+        log.set(lbChannel, sensors.leftBackPosition());
+        log.set(rfChannel, sensors.rightFrontPosition());
+        log.set(rbChannel, sensors.rightBackPosition());
+        log.set(lfPowerChannel, wheelPowers[MecanumDrive.LEFT_FRONT]);
+        log.set(lbPowerChannel, wheelPowers[MecanumDrive.LEFT_BACK]);
+        log.set(rfPowerChannel, wheelPowers[MecanumDrive.RIGHT_FRONT]);
+        log.set(rbPowerChannel, wheelPowers[MecanumDrive.RIGHT_BACK]);
+        log.set(spindexerChannel, spindexer.getPosition());
+        log.set(spindexerGoalChannel, spindexer.getGoal());
+        log.set(flywheel1Channel, sensors.outtake1Velocity());
+        log.set(flywheel2Channel, sensors.outtake2Velocity());
+        log.set(intakePowerChannel, robot.intakeMotor.getPower());
+        log.set(kickerChannel, robot.kickerServo1.getPosition());
+        log.set(kickStateChannel, kick.getState().ordinal());
+        log.set(intakeStateChannel, intake.isIdle() ? 0 : 1);
+        log.set(slotsChannel, slots.bits());
+        log.set(redChannel, sensors.red());
+        log.set(greenChannel, sensors.green());
+        log.set(blueChannel, sensors.blue());
+        log.set(colorChannel, ballColor.ordinal());
+        log.set(voltageChannel, sensors.batteryVoltage());
+        log.set(xChannel, odometry.getX());
+        log.set(yChannel, odometry.getY());
+        log.set(headingChannel, odometry.getHeading());
+        log.set(fieldHeadingChannel, fieldHeading.getHeading());
+        log.set(turretChannel, turret.getAngle());
+        log.set(turretTargetChannel, turret.getTarget());
+        log.write(sensors.timestampNanos());
+        profiler.lap(logSection);
+
+        // --- Telemetry ---
+        publisher.setText(kickStateLine, kick.getState());
+        publisher.set(intakeCountLine, intake.getCount());
+        publisher.setText(ballColorLine, ballColor);
+        publisher.setText(slotsLine, slots.describe());
+        publisher.setText(preferLine, preferredColor);
+        publisher.set(rgbLine, sensors.red(), sensors.green(), sensors.blue());
+        publisher.set(hueLine, classifier.getHue(), classifier.getSaturation());
+        publisher.set(spindexerLine, spindexer.getGoal(), spindexer.getPosition());
+        publisher.set(poseLine, odometry.getX(), odometry.getY(), Math.toDegrees(odometry.getHeading()));
+        publisher.setText(driveModeLine, fieldRelative ? "Field-relative" : "Robot-relative");
+        publisher.set(fieldHeadingLine, Math.toDegrees(fieldHeading.getHeading()));
+        publisher.set(flywheelLine, flywheel.getVelocity1(), flywheel.getVelocity2());
+        publisher.set(turretLine, Math.toDegrees(turret.getAngle()), Math.toDegrees(turret.getTarget()));
+        publisher.setText(aimLine, !turret.isGearingValid() ? "Off, check turret_ticks_per_rev"
+                : !turret.isAutoAim() ? "Off"
+                : turret.isOnTarget() ? "On target"
+                : turret.hasTarget(sensors.timestampNanos()) ? "Tracking"
+                : kick.aimTimedOut() ? "No goal, volley cancelled" : "No goal");
+        publisher.set(intakePowerLine, robot.intakeMotor.getPower());
+        publisher.set(writesSavedLine, robot.lastSavedWrites());
+        profiler.report(publisher, loopLine);
+        publisher.commit();
+        profiler.lap(telemetrySection);
+    }
+
+    /** After the loop: stop the threads, hand off to the next OpMode and write the diagnostics. */
+    void finish() {
+        scheduler.stop();
+        vision.close();
+        publisher.stop();
+        Handoff.publish("PrometheusDriver", odometry, spindexer, slots, flywheel);
+        log.close();
+        profiler.dump("PrometheusDriver");
+        scheduler.dump("PrometheusDriver");
+        vision.dump("PrometheusDriver");
+        cameras.dump("PrometheusDriver");
     }
 }
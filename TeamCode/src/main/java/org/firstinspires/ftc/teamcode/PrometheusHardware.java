@@ -0,0 +1,302 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.hardware.gobilda.GoBildaPinpointDriver;
+import com.qualcomm.hardware.lynx.LynxModule;
+import com.qualcomm.hardware.rev.RevHubOrientationOnRobot;
+import com.qualcomm.robotcore.hardware.ColorSensor;
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.IMU;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import java.util.List;
+
+/*
+ * Shared hardware setup for PrometheusDriver and Auto.
+ *
+ * Every hub is switched to LynxModule.BulkCachingMode.MANUAL (see ConceptMotorBulkRead).  Call update()
+ * exactly once at the top of each control cycle: it clears the bulk cache, reads every encoder position
+ * and velocity in one bulk transaction per hub, and returns them as a HardwareSnapshot.  The rest of the
+ * loop should read from that snapshot instead of calling getCurrentPosition()/getVelocity() on a motor,
+ * since in MANUAL mode those calls would just return the same cached data anyway.
+ *
+ * The color sensor sits on I2C and is not part of the bulk read, so each read costs three extra
+ * transactions.  It is only read while setColorSensorEnabled(true) is in effect (e.g. while a spindexer
+ * slot is aligned with it); otherwise the last reading is carried over and colorValid() is false.  By
+ * default update() reads it inline; after readColorSensorOn() a SubsystemScheduler task reads it on its
+ * own thread instead and update() picks up the newest reading from a TripleBuffer, so the I2C time no
+ * longer lands in the control loop.  Battery voltage is also its own transaction and changes slowly, so
+ * it is only re-read every VOLTAGE_READ_INTERVAL_NS.
+ *
+ * Outputs go the other way: motors and servos are exposed as CachedMotor / CachedServo, which only record
+ * what the loop asks for.  Call flush() once at the end of the cycle to send everything that actually
+ * changed in one batch.  Repeated writes of the same value (e.g. the flywheels at 1.0 for a whole volley)
+ * never reach the hub.
+ */
+public class PrometheusHardware {
+
+    // Changes smaller than these are not worth a hub transaction
+    public static final double POWER_EPSILON = 0.005;
+    public static final double SERVO_EPSILON = 0.001;
+
+    // Battery voltage is read at most this often
+    static final long VOLTAGE_READ_INTERVAL_NS = 250_000_000L;
+
+    // How the Control Hub is mounted, for its IMU (see RobotTeleopMecanumFieldRelativeDrive)
+    static final RevHubOrientationOnRobot.LogoFacingDirection HUB_LOGO_DIRECTION =
+            RevHubOrientationOnRobot.LogoFacingDirection.UP;
+    static final RevHubOrientationOnRobot.UsbFacingDirection HUB_USB_DIRECTION =
+            RevHubOrientationOnRobot.UsbFacingDirection.FORWARD;
+
+    // Drive motors
+    public final CachedMotor leftFrontDrive;
+    public final CachedMotor leftBackDrive;
+    public final CachedMotor rightFrontDrive;
+    public final CachedMotor rightBackDrive;
+
+    // Spindexer, flywheels, turret and intake
+    public final CachedMotor spindexer;
+    public final CachedMotor outtakeMotor1;
+    public final CachedMotor outtakeMotor2;
+    public final CachedMotor outtakeTurnMotor;
+    public final CachedMotor intakeMotor;
+
+    // Kicker servos
+    public final CachedServo kickerServo1;
+    public final CachedServo kickerServo2;
+
+    public final ColorSensor ballSensor;
+    public final VoltageSensor batterySensor;
+
+    // Optional goBILDA Pinpoint odometry computer, null if the configuration has none
+    public final GoBildaPinpointDriver pinpoint;
+
+    // Control Hub IMU named "imu", null if the configuration has none.  Read it through FieldHeading.
+    public final IMU imu;
+
+    private final List<LynxModule> allHubs;
+    private final NanoClock clock;
+
+    // Everything flush() walks over, in write order
+    private final CachedMotor[] motors;
+    private final CachedServo[] servos;
+    private int lastWrites = 0;
+    private int lastSavedWrites = 0;
+
+    // Two snapshots are swapped every cycle so the previous one stays readable for a loop
+    private HardwareSnapshot current = new HardwareSnapshot();
+    private HardwareSnapshot spare = new HardwareSnapshot();
+    private long cycles = 0;
+    private double batteryVoltage = 12.0;
+    private long lastVoltageReadNanos = 0;
+    private volatile boolean colorSensorEnabled = true;
+
+    // Background color reads (readColorSensorOn), null while reading inline
+    private TripleBuffer<ColorReading> colorReadings;
+    private volatile long colorEnabledNanos = 0;
+
+    /** One background color sensor read. */
+    static final class ColorReading {
+        int red, green, blue;
+        long startNanos;
+    }
+
+    public PrometheusHardware(HardwareMap hardwareMap) {
+        this(hardwareMap, NanoClock.SYSTEM);
+    }
+
+    /**
+     * Use a different time source for snapshot timestamps, e.g. SimRobot's simulated clock.
+     */
+    PrometheusHardware(HardwareMap hardwareMap, NanoClock clock) {
+        this.clock = clock;
+
+        leftFrontDrive  = motor(hardwareMap, "left_front_drive");
+        leftBackDrive   = motor(hardwareMap, "left_back_drive");
+        rightFrontDrive = motor(hardwareMap, "right_front_drive");
+        rightBackDrive  = motor(hardwareMap, "right_back_drive");
+
+        spindexer        = motor(hardwareMap, "spindexer");
+        outtakeMotor1    = motor(hardwareMap, "outtake_motor1");
+        outtakeMotor2    = motor(hardwareMap, "outtake_motor2");
+        outtakeTurnMotor = motor(hardwareMap, "outtake_turn");
+        intakeMotor      = motor(hardwareMap, "intake_motor");
+
+        kickerServo1 = new CachedServo(hardwareMap.get(Servo.class, "kicker_1"), SERVO_EPSILON);
+        kickerServo2 = new CachedServo(hardwareMap.get(Servo.class, "kicker_2"), SERVO_EPSILON);
+
+        motors = new CachedMotor[] {
+                leftFrontDrive, leftBackDrive, rightFrontDrive, rightBackDrive,
+                spindexer, outtakeMotor1, outtakeMotor2, outtakeTurnMotor, intakeMotor
+        };
+        servos = new CachedServo[] { kickerServo1, kickerServo2 };
+
+        ballSensor = hardwareMap.get(ColorSensor.class, "ball_sensor");
+        batterySensor = hardwareMap.voltageSensor.iterator().next();
+        pinpoint = hardwareMap.tryGet(GoBildaPinpointDriver.class, "pinpoint");
+        imu = hardwareMap.tryGet(IMU.class, "imu");
+        if (imu != null) {
+            imu.initialize(new IMU.Parameters(new RevHubOrientationOnRobot(HUB_LOGO_DIRECTION, HUB_USB_DIRECTION)));
+        }
+
+        // Set directions
+        leftFrontDrive.motor().setDirection(DcMotor.Direction.FORWARD);
+        leftBackDrive.motor().setDirection(DcMotor.Direction.FORWARD);
+        rightFrontDrive.motor().setDirection(DcMotor.Direction.REVERSE);
+        rightBackDrive.motor().setDirection(DcMotor.Direction.REVERSE);
+
+        outtakeMotor1.motor().setDirection(DcMotor.Direction.FORWARD);
+        outtakeMotor2.motor().setDirection(DcMotor.Direction.REVERSE);
+
+        // Kickers: One is reversed to move in sync physically
+        kickerServo1.servo().setDirection(Servo.Direction.REVERSE);
+        kickerServo2.servo().setDirection(Servo.Direction.FORWARD);
+
+        allHubs = hardwareMap.getAll(LynxModule.class);
+        for (LynxModule module : allHubs) {
+            module.setBulkCachingMode(LynxModule.BulkCachingMode.MANUAL);
+        }
+    }
+
+    /**
+     * Clear the bulk cache and read every input for this control cycle.
+     * Call once per loop, before any control code runs.
+     */
+    public HardwareSnapshot update() {
+        for (LynxModule module : allHubs) {
+            module.clearBulkCache();
+        }
+
+        HardwareSnapshot s = spare;
+        s.timestampNanos = clock.nanoTime();
+        s.cycle = cycles++;
+
+        // The first read on each hub triggers its bulk read, the rest come from the cache
+        s.leftFrontPosition   = leftFrontDrive.motor().getCurrentPosition();
+        s.leftBackPosition    = leftBackDrive.motor().getCurrentPosition();
+        s.rightFrontPosition  = rightFrontDrive.motor().getCurrentPosition();
+        s.rightBackPosition   = rightBackDrive.motor().getCurrentPosition();
+        s.spindexerPosition   = spindexer.motor().getCurrentPosition();
+        s.outtake1Position    = outtakeMotor1.motor().getCurrentPosition();
+        s.outtake2Position    = outtakeMotor2.motor().getCurrentPosition();
+        s.outtakeTurnPosition = outtakeTurnMotor.motor().getCurrentPosition();
+
+        s.leftFrontVelocity   = leftFrontDrive.motor().getVelocity();
+        s.leftBackVelocity    = leftBackDrive.motor().getVelocity();
+        s.rightFrontVelocity  = rightFrontDrive.motor().getVelocity();
+        s.rightBackVelocity   = rightBackDrive.motor().getVelocity();
+        s.spindexerVelocity   = spindexer.motor().getVelocity();
+        s.outtake1Velocity    = outtakeMotor1.motor().getVelocity();
+        s.outtake2Velocity    = outtakeMotor2.motor().getVelocity();
+        s.outtakeTurnVelocity = outtakeTurnMotor.motor().getVelocity();
+
+        if (colorReadings != null) {
+            // Only trust a reading that was started after the sensor was last enabled
+            boolean fresh = colorReadings.update();
+            ColorReading r = colorReadings.read();
+            s.red   = r.red;
+            s.green = r.green;
+            s.blue  = r.blue;
+            s.colorValid = fresh && colorSensorEnabled && r.startNanos >= colorEnabledNanos;
+        } else if (colorSensorEnabled) {
+            s.red   = ballSensor.red();
+            s.green = ballSensor.green();
+            s.blue  = ballSensor.blue();
+            s.colorValid = true;
+        } else {
+            s.red   = current.red;
+            s.green = current.green;
+            s.blue  = current.blue;
+            s.colorValid = false;
+        }
+
+        if (lastVoltageReadNanos == 0 || s.timestampNanos - lastVoltageReadNanos >= VOLTAGE_READ_INTERVAL_NS) {
+            lastVoltageReadNanos = s.timestampNanos;
+            batteryVoltage = batterySensor.getVoltage();
+        }
+        s.batteryVoltage = batteryVoltage;
+
+        spare = current;
+        current = s;
+        return s;
+    }
+
+    /**
+     * Whether the next update() should read the color sensor.  Skipping it saves three I2C transactions
+     * per cycle when nothing useful is under the sensor.
+     */
+    public void setColorSensorEnabled(boolean enabled) {
+        if (enabled && !colorSensorEnabled) {
+            colorEnabledNanos = clock.nanoTime();
+        }
+        colorSensorEnabled = enabled;
+    }
+
+    /**
+     * Read the color sensor on a scheduler task at rateHz instead of inside update().  Call during init,
+     * before the scheduler is started.
+     */
+    public void readColorSensorOn(SubsystemScheduler scheduler, double rateHz) {
+        colorReadings = new TripleBuffer<>(ColorReading::new);
+        scheduler.addTask("color", rateHz, this::readColorSensor);
+    }
+
+    private void readColorSensor() {
+        if (!colorSensorEnabled) {
+            return;
+        }
+        ColorReading r = colorReadings.writeBuffer();
+        r.startNanos = clock.nanoTime();
+        r.red   = ballSensor.red();
+        r.green = ballSensor.green();
+        r.blue  = ballSensor.blue();
+        colorReadings.publish();
+    }
+
+    /** The snapshot returned by the most recent update(). */
+    public HardwareSnapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Time of the current control cycle (the latest snapshot's timestamp).  Pass robot::cycleNanos as the
+     * NanoClock of waits and followers so they run on the same clock as everything else, simulated or not.
+     */
+    public long cycleNanos() {
+        return current.timestampNanos;
+    }
+
+    /**
+     * Send every output that changed this cycle.  Call once per loop, after all control code has run.
+     */
+    public void flush() {
+        int writes = 0;
+        int requests = 0;
+        for (CachedMotor m : motors) {
+            requests += m.pendingRequests();
+            writes += m.flush();
+        }
+        for (CachedServo s : servos) {
+            requests += s.pendingRequests();
+            writes += s.flush();
+        }
+        lastWrites = writes;
+        lastSavedWrites = requests - writes;
+    }
+
+    /** Hub writes issued by the last flush(). */
+    public int lastWrites() {
+        return lastWrites;
+    }
+
+    /** Set calls that the last flush() did not need to send to the hub. */
+    public int lastSavedWrites() {
+        return lastSavedWrites;
+    }
+
+    private static CachedMotor motor(HardwareMap hardwareMap, String name) {
+        return new CachedMotor(hardwareMap.get(DcMotorEx.class, name), POWER_EPSILON);
+    }
+}
@@ -0,0 +1,116 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/*
+ * The container shared by the files in /sdcard/FIRST/settings (Calibration, ShotTable), little-endian:
+ *     int magic, int version, int count, payload, int CRC32 of everything before it.
+ *
+ *     ByteBuffer in = SettingsFile.read(file, MAGIC, VERSION, MAX_FILE_BYTES, "ShotTable");
+ *     if (in != null) { int count = in.getInt(); ... }       // payload up to the CRC
+ *
+ *     ByteBuffer out = ByteBuffer.allocate(MAX_FILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+ *     out.putInt(MAGIC).putInt(VERSION).putInt(count); ...
+ *     SettingsFile.write(file, out, "ShotTable");
+ *
+ * read() checks the magic, version and CRC, and logs why a file was rejected.  write() adds the CRC, writes
+ * a temporary file, syncs it and renames it over the old one, so a power cut leaves either the old file or
+ * the new one.
+ */
+final class SettingsFile {
+
+    // magic, version, count ... CRC
+    static final int HEADER_BYTES = 12;
+    static final int CRC_BYTES = 4;
+
+    private SettingsFile() {
+    }
+
+    /**
+     * The file's contents after a valid header, positioned at the count and limited before the CRC.
+     * @return null if the file is missing or invalid (logged under `tag`, except a missing file)
+     */
+    static ByteBuffer read(File file, int magic, int version, int maxBytes, String tag) {
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(readAll(file, maxBytes)).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            RobotLog.ee(tag, e, "failed to read %s", file.getPath());
+            return null;
+        }
+
+        int length = buffer.limit();
+        if (length < HEADER_BYTES + CRC_BYTES || buffer.getInt(0) != magic || buffer.getInt(4) > version) {
+            RobotLog.ww(tag, "%s is not a file this code can read", file.getPath());
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, length - CRC_BYTES);
+        if ((int) crc.getValue() != buffer.getInt(length - CRC_BYTES)) {
+            RobotLog.ww(tag, "%s is corrupt, using defaults", file.getPath());
+            return null;
+        }
+        buffer.position(8);
+        buffer.limit(length - CRC_BYTES);
+        return buffer;
+    }
+
+    /**
+     * Add the CRC to everything written to `buffer` so far (a heap buffer) and replace the file with it.
+     * @return false if the file could not be written (the old one is left as it was)
+     */
+    static boolean write(File file, ByteBuffer buffer, String tag) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            AppUtil.ensureDirectoryExists(file.getParentFile());
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(buffer.array(), 0, buffer.position());
+                out.getFD().sync();
+            }
+            if (!temp.renameTo(file)) {
+                throw new IOException("rename " + temp.getPath() + " failed");
+            }
+        } catch (IOException e) {
+            RobotLog.ee(tag, e, "failed to save %s", file.getPath());
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+
+    private static byte[] readAll(File file, int maxBytes) throws IOException {
+        long size = file.length();
+        if (size > maxBytes) {
+            throw new IOException(file.getPath() + " is too large (" + size + " bytes)");
+        }
+        byte[] bytes = new byte[(int) size];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    throw new IOException(file.getPath() + " ended early");
+                }
+                read += n;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,223 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Flywheel speed and turret aim offset by distance to the goal, so the robot can shoot from anywhere.
+ *
+ *     ShotTable shots = ShotTable.load();            // during init
+ *     shots.lookup(fix.goalRange);                   // in the loop, no allocation
+ *     flywheel.setShotVelocity(shots.getVelocity());
+ *     turret.setAimOffset(shots.getOffset());
+ *
+ * Entries are kept sorted by range in parallel arrays.  lookup() finds the pair of entries around the
+ * range with a binary search and interpolates linearly between them; outside the table the nearest end
+ * is used, so the robot never asks for a speed nobody has tried.  Ranges are whatever the tuning OpMode
+ * measured them with (AprilTag range from the camera to the goal tag, in inches), so the same measurement
+ * must be used for lookups.
+ *
+ * ShotTableTuner edits the table on the robot and calls save().  The file is a SettingsFile, like
+ * Calibration's: /sdcard/FIRST/settings/prometheus_shot_table.bin, little-endian:
+ *     int magic "PSHT", int version, int count,
+ *     count x { double range, double velocity, double offset },
+ *     int CRC32 of everything before it.
+ * Without a valid file the table is empty, and an empty table gives the old fixed
+ * Flywheel.TARGET_VELOCITY with no offset at every range.  Nothing is stored for that default, so the
+ * first real entry is the only one lookup() interpolates from.
+ */
+public class ShotTable {
+
+    static final String FILE_NAME = "prometheus_shot_table.bin";
+    static final int MAGIC = 0x54485350; // "PSHT"
+    static final int VERSION = 1;
+    static final int MAX_ENTRIES = 16;
+    static final int ENTRY_BYTES = 3 * 8;
+    static final int MAX_FILE_BYTES = SettingsFile.HEADER_BYTES + MAX_ENTRIES * ENTRY_BYTES + SettingsFile.CRC_BYTES;
+
+    // put() replaces an entry closer than this (inches) instead of adding one
+    static final double MERGE_RANGE = 2.0;
+
+    // An empty table gives the old fixed shot at every range
+    static final double DEFAULT_VELOCITY = Flywheel.TARGET_VELOCITY;
+
+    private final File file;
+
+    private final double[] ranges = new double[MAX_ENTRIES];
+    private final double[] velocities = new double[MAX_ENTRIES];
+    private final double[] offsets = new double[MAX_ENTRIES];
+    private int size = 0;
+
+    // Result of the last lookup()
+    private double velocity = DEFAULT_VELOCITY;
+    private double offset = 0;
+
+    /** Defaults only, not tied to a file. */
+    public ShotTable() {
+        this(null);
+    }
+
+    ShotTable(File file) {
+        this.file = file;
+    }
+
+    /** The table on the hub, or the defaults if there is none yet. */
+    public static ShotTable load() {
+        ShotTable table = new ShotTable(new File(AppUtil.ROBOT_SETTINGS, FILE_NAME));
+        table.reload();
+        return table;
+    }
+
+    /**
+     * Look up a range (inches).  The results are read with getVelocity() and getOffset().
+     */
+    public void lookup(double range) {
+        if (size == 0) {
+            velocity = DEFAULT_VELOCITY;
+            offset = 0;
+            return;
+        }
+        if (range <= ranges[0]) {
+            velocity = velocities[0];
+            offset = offsets[0];
+            return;
+        }
+        if (range >= ranges[size - 1]) {
+            velocity = velocities[size - 1];
+            offset = offsets[size - 1];
+            return;
+        }
+
+        // Last entry at or below the range; ranges[0] <= range < ranges[size - 1] here
+        int low = 0, high = size - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (ranges[mid] <= range) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double t = (range - ranges[low]) / (ranges[high] - ranges[low]);
+        velocity = velocities[low] + t * (velocities[high] - velocities[low]);
+        offset = offsets[low] + t * (offsets[high] - offsets[low]);
+    }
+
+    /** Flywheel velocity (ticks per second) from the last lookup(). */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /** Turret aim offset (radians, counter-clockwise) from the last lookup(). */
+    public double getOffset() {
+        return offset;
+    }
+
+    /**
+     * Add an entry, or replace the one within MERGE_RANGE of it.
+     * @return its index, or -1 if the table is full
+     */
+    public int put(double range, double velocity, double offset) {
+        int nearest = nearest(range);
+        if (nearest >= 0 && Math.abs(ranges[nearest] - range) < MERGE_RANGE) {
+            remove(nearest);
+        }
+        if (size == MAX_ENTRIES) {
+            return -1;
+        }
+        int index = size;
+        while (index > 0 && ranges[index - 1] > range) {
+            ranges[index] = ranges[index - 1];
+            velocities[index] = velocities[index - 1];
+            offsets[index] = offsets[index - 1];
+            index--;
+        }
+        ranges[index] = range;
+        velocities[index] = velocity;
+        offsets[index] = offset;
+        size++;
+        return index;
+    }
+
+    /** Remove an entry. */
+    public void remove(int index) {
+        if (index < 0 || index >= size) {
+            return;
+        }
+        System.arraycopy(ranges, index + 1, ranges, index, size - index - 1);
+        System.arraycopy(velocities, index + 1, velocities, index, size - index - 1);
+        System.arraycopy(offsets, index + 1, offsets, index, size - index - 1);
+        size--;
+    }
+
+    /** Index of the entry closest to a range, or -1 if the table is empty. */
+    public int nearest(double range) {
+        int best = -1;
+        for (int i = 0; i < size; i++) {
+            if (best < 0 || Math.abs(ranges[i] - range) < Math.abs(ranges[best] - range)) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double rangeAt(int index) { return ranges[index]; }
+    public double velocityAt(int index) { return velocities[index]; }
+    public double offsetAt(int index) { return offsets[index]; }
+
+    /**
+     * Replace the table with the file's.  The table is left as it was if the file is missing or invalid.
+     * @return false if the file is missing or invalid
+     */
+    public boolean reload() {
+        if (file == null) {
+            return false;
+        }
+        ByteBuffer buffer = SettingsFile.read(file, MAGIC, VERSION, MAX_FILE_BYTES, "ShotTable");
+        if (buffer == null) {
+            return false;
+        }
+
+        int count = buffer.getInt();
+        if (count < 0 || count > MAX_ENTRIES || buffer.remaining() != count * ENTRY_BYTES) {
+            RobotLog.ww("ShotTable", "%s has a bad entry count", file.getPath());
+            return false;
+        }
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            put(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+        }
+        RobotLog.ii("ShotTable", "loaded %d entries from %s", size, file.getPath());
+        return true;
+    }
+
+    /**
+     * Write the table to the file, replacing it atomically.
+     * @return false if the file could not be written (the old one is left as it was)
+     */
+    public boolean save() {
+        if (file == null) {
+            return false;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_FILE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(size);
+        for (int i = 0; i < size; i++) {
+            buffer.putDouble(ranges[i]).putDouble(velocities[i]).putDouble(offsets[i]);
+        }
+        return SettingsFile.write(file, buffer, "ShotTable");
+    }
+
+    /** Back to the defaults: no entries, so every lookup gives DEFAULT_VELOCITY and no offset. */
+    public void setDefaults() {
+        size = 0;
+    }
+}
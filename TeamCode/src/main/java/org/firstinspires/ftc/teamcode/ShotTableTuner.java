@@ -0,0 +1,181 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.eventloop.opmode.LinearOpMode;
+import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
+
+/*
+ * Builds the ShotTable on the robot.
+ *
+ * Drive to a spot with the goal tag in view, load a ball in the slot at the kicker, and try shots:
+ *   D-pad Up / Down     flywheel velocity +/- VELOCITY_STEP (hold to repeat)
+ *   D-pad Left / Right  aim offset +/- OFFSET_STEP (left is counter-clockwise)
+ *   Right bumper        kick (held = extended)
+ *   Y                   flywheels on / off
+ *   X                   start from the table's values for the current range
+ *   A                   store velocity and offset for the current range, and save
+ *   B                   delete the entry nearest the current range, and save
+ * Sticks drive robot-relative.  The turret aims with the offset being tuned, as it will in PrometheusDriver.
+ * The range is the AprilTag range to the goal tag, the same measurement PrometheusDriver looks up with.
+ * X, A and B only work while that range is from a frame less than MAX_RANGE_AGE old, so an entry is never
+ * stored or deleted at a distance the robot has since driven away from.
+ * The goal is the alliance's (X blue, B red during init), shared with PrometheusDriver.
+ */
+@TeleOp(name = "Shot Table Tuner", group = "Test")
+public class ShotTableTuner extends LinearOpMode {
+
+    static final double VELOCITY_STEP = 20;                 // ticks per second
+    static final double OFFSET_STEP = Math.toRadians(0.5);
+
+    // Holding a D-pad button repeats the step after REPEAT_DELAY, every REPEAT_INTERVAL
+    static final double REPEAT_DELAY = 0.4;
+    static final double REPEAT_INTERVAL = 0.05;
+
+    // X, A and B need a goal range from a frame at most this old, seconds
+    static final double MAX_RANGE_AGE = 0.5;
+
+    // AprilTag detections are collected this often (at least the camera frame rate)
+    static final double VISION_RATE = 30;
+
+    // Pause between init-loop passes (alliance selection)
+    static final long INIT_LOOP_MS = 50;
+
+    @Override
+    public void runOpMode() {
+        // --- Initialization ---
+        PrometheusHardware robot = new PrometheusHardware(hardwareMap);
+        Calibration calibration = Calibration.load();
+        ShotTable shots = ShotTable.load();
+
+        MecanumDrive drive = new MecanumDrive(robot);
+        Odometry odometry = new Odometry(robot);
+        Flywheel flywheel = new Flywheel(robot.outtakeMotor1, robot.outtakeMotor2);
+        Turret turret = new Turret(robot.outtakeTurnMotor, odometry, calibration);
+        turret.reset();
+
+        SubsystemScheduler scheduler = new SubsystemScheduler();
+        AprilTagVision vision = new AprilTagVision(hardwareMap);
+        vision.readOn(scheduler, VISION_RATE);
+
+        robot.kickerServo1.setPosition(calibration.kickerRetracted);
+        robot.kickerServo2.setPosition(calibration.kickerRetracted);
+        robot.flush();
+
+        GamepadInput input = new GamepadInput();
+
+        double velocity = Flywheel.TARGET_VELOCITY;
+        double offset = 0;
+        double range = Double.NaN;   // No tag seen yet
+        long rangeNanos = 0;         // Capture time of the frame it came from
+        boolean flywheelOn = false;
+
+        TelemetryPublisher publisher = new TelemetryPublisher(telemetry, 10);
+        int rangeLine    = publisher.addLine("Range", "%.1f in");
+        int shotLine     = publisher.addLine("Velocity / Offset", "%.0f / %.1f deg");
+        int flywheelLine = publisher.addLine("Flywheels", "%.0f / %.0f");
+        int aimLine      = publisher.addLine("Turret", "angle %.1f  target %.1f");
+        int tableLine    = publisher.addLine("Table", "%.0f entries, nearest %.0f in: %.0f / %.1f deg");
+        int saveLine     = publisher.addLine("Save");
+
+        Alliance alliance = Alliance.last();
+        while (opModeInInit()) {
+            if (gamepad1.x) {
+                alliance = Alliance.BLUE;
+            } else if (gamepad1.b) {
+                alliance = Alliance.RED;
+            }
+            vision.setGoalTag(alliance.goalTag);
+
+            telemetry.addData("Status", vision.isAvailable() ? "Initialized" : "No webcam, range unavailable");
+            telemetry.addData("Alliance", "%s, goal tag %d (X blue, B red)", alliance, alliance.goalTag);
+            telemetry.addData(">", "D-pad: velocity / offset.  A store, B delete, X from table, Y flywheels.");
+            telemetry.update();
+            sleep(INIT_LOOP_MS);
+        }
+        alliance.remember();
+
+        publisher.start();
+        scheduler.start();
+
+        // --- Main Loop ---
+        while (opModeIsActive()) {
+            HardwareSnapshot sensors = robot.update();
+            flywheel.update(sensors);
+            odometry.update(sensors);
+            input.update(gamepad1, sensors.timestampNanos());
+
+            if (vision.update() && vision.fix().goalSeen) {
+                AprilTagVision.Fix fix = vision.fix();
+                turret.addVisionBearing(fix.goalBearing, fix.captureNanos, sensors);
+                range = fix.goalRange;
+                rangeNanos = fix.captureNanos;
+            }
+            boolean haveRange = !Double.isNaN(range)
+                    && (sensors.timestampNanos() - rangeNanos) / 1e9 <= MAX_RANGE_AGE;
+
+            // --- Tuning (Gamepad 1) ---
+            if (input.repeating(GamepadInput.DPAD_UP, REPEAT_DELAY, REPEAT_INTERVAL)) {
+                velocity = Math.min(velocity + VELOCITY_STEP, Flywheel.MAX_TICKS_PER_SECOND);
+            } else if (input.repeating(GamepadInput.DPAD_DOWN, REPEAT_DELAY, REPEAT_INTERVAL)) {
+                velocity = Math.max(velocity - VELOCITY_STEP, 0);
+            }
+            if (input.repeating(GamepadInput.DPAD_LEFT, REPEAT_DELAY, REPEAT_INTERVAL)) {
+                offset += OFFSET_STEP;
+            } else if (input.repeating(GamepadInput.DPAD_RIGHT, REPEAT_DELAY, REPEAT_INTERVAL)) {
+                offset -= OFFSET_STEP;
+            }
+            if (input.pressed(GamepadInput.Y)) {
+                flywheelOn = !flywheelOn;
+            }
+
+            if (input.pressed(GamepadInput.X) && haveRange) {
+                shots.lookup(range);
+                velocity = shots.getVelocity();
+                offset = shots.getOffset();
+            } else if (input.pressed(GamepadInput.A) && haveRange) {
+                if (shots.put(range, velocity, offset) < 0) {
+                    publisher.setText(saveLine, "Table full, delete an entry first");
+                } else {
+                    publisher.setText(saveLine, shots.save() ? "Saved" : "FAILED, see robot log");
+                }
+            } else if (input.pressed(GamepadInput.B) && haveRange && shots.size() > 0) {
+                shots.remove(shots.nearest(range));
+                publisher.setText(saveLine, shots.save() ? "Deleted" : "FAILED, see robot log");
+            }
+
+            // --- Shooter ---
+            flywheel.setTargetVelocity(flywheelOn ? velocity : 0);
+            turret.setAimOffset(offset);
+            turret.update(sensors);
+
+            double kicker = input.held(GamepadInput.RIGHT_BUMPER)
+                    ? calibration.kickerExtended : calibration.kickerRetracted;
+            robot.kickerServo1.setPosition(kicker);
+            robot.kickerServo2.setPosition(kicker);
+
+            drive.drive(input.leftY(), input.leftX(), input.rightX(), sensors);
+            robot.flush();
+
+            // --- Telemetry ---
+            if (haveRange) {
+                publisher.set(rangeLine, range);
+            } else {
+                publisher.setText(rangeLine, "No goal tag, X / A / B disabled");
+            }
+            publisher.set(shotLine, velocity, Math.toDegrees(offset));
+            publisher.set(flywheelLine, flywheel.getVelocity1(), flywheel.getVelocity2());
+            publisher.set(aimLine, Math.toDegrees(turret.getAngle()), Math.toDegrees(turret.getTarget()));
+            int nearest = haveRange ? shots.nearest(range) : -1;
+            if (nearest >= 0) {
+                publisher.set(tableLine, shots.size(), shots.rangeAt(nearest), shots.velocityAt(nearest),
+                        Math.toDegrees(shots.offsetAt(nearest)));
+            }
+            publisher.commit();
+        }
+
+        scheduler.stop();
+        vision.close();
+        flywheel.stop();
+        robot.flush();
+        publisher.stop();
+    }
+}
@@ -0,0 +1,200 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+
+/*
+ * Spindexer positioning on the REV Through Bore Encoder (8192 ticks per revolution of the spindexer shaft).
+ *
+ * Moves are accumulated into an absolute goal, the same way the OpModes used to add TICKS_FOR_120_DEGREES
+ * to spindexerTarget.  Instead of handing the whole jump to RUN_TO_POSITION at once, update() walks the
+ * motor's target along a trapezoidal profile (limited velocity and acceleration), so the hub's position
+ * loop only ever has a small error to correct and the spindexer arrives without overshoot.  If the goal
+ * changes part way through a move, the profile carries on from where it is.
+ *
+ * isAtTarget() reports when the encoder has actually settled on the goal, so callers can move on the
+ * moment a slot is aligned instead of waiting out a worst-case timer.
+ *
+ * Positions are in ticks from where reset() was called, with slot 0 at the intake.  resume() keeps that
+ * frame across OpModes (see Handoff) by remembering the offset between it and the raw encoder.
+ */
+public class Spindexer {
+
+    // REV Through Bore Encoder constants (8192 ticks/rev on the shaft)
+    static final double TICKS_PER_REV = 8192;
+    static final int TICKS_FOR_60_DEGREES = (int)(TICKS_PER_REV / 6.0);
+    static final int TICKS_FOR_120_DEGREES = (int)(TICKS_PER_REV / 3.0);
+    static final int TICKS_FOR_180_DEGREES = (int)(TICKS_PER_REV / 2.0);
+
+    // Profile limits, in ticks/s and ticks/s^2
+    static final double MAX_VELOCITY = 6000;
+    static final double MAX_ACCELERATION = 24000;
+
+    // Power cap for the hub's RUN_TO_POSITION loop while following the profile
+    static final double MAX_POWER = 1.0;
+
+    // "Settled" means within this many ticks of the goal and turning slower than this
+    static final int POSITION_TOLERANCE = 40;
+    static final double SETTLE_VELOCITY = 150;
+
+    // Longest time step the profile will take in one update, so a stalled loop does not jump the target
+    static final double MAX_DT = 0.05;
+
+    private final CachedMotor motor;
+
+    private int goal = 0;                // Where the spindexer should end up
+    private double setpoint = 0;         // Where the profile is right now
+    private double setpointVelocity = 0; // Signed, ticks/s
+    private long lastNanos = 0;
+
+    private int position = 0;
+    private double velocity = 0;
+
+    // Our position minus the encoder reading
+    private int offset = 0;
+
+    public Spindexer(CachedMotor motor) {
+        this.motor = motor;
+        motor.motor().setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+    }
+
+    /**
+     * Zero the encoder and hold the spindexer where it is.  Call during init.
+     */
+    public void reset() {
+        motor.motor().setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+
+        // The target has to reach the hub before RUN_TO_POSITION is selected
+        motor.invalidate();
+        motor.setTargetPosition(0);
+        motor.flush();
+        motor.motor().setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setPower(MAX_POWER);
+        motor.flush();
+
+        goal = 0;
+        setpoint = 0;
+        setpointVelocity = 0;
+        position = 0;
+        velocity = 0;
+        lastNanos = 0;
+        offset = 0;
+    }
+
+    /**
+     * Carry on from a previous OpMode instead of calling reset(): the spindexer is still where that OpMode
+     * left it, at `position` in its frame, whatever the encoder reads now.  The encoder normally keeps
+     * counting between OpModes, but this also holds if the hub restarted and zeroed it, as long as nobody
+     * turned the spindexer by hand.  Call during init, after PrometheusHardware.update().
+     */
+    public void resume(HardwareSnapshot sensors, int position, int goal) {
+        int encoder = sensors.spindexerPosition();
+        offset = position - encoder;
+
+        // Hold where it is, then let update() walk the profile to the goal
+        motor.invalidate();
+        motor.setTargetPosition(encoder);
+        motor.flush();
+        motor.motor().setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setPower(MAX_POWER);
+        motor.flush();
+
+        this.goal = goal;
+        setpoint = position;
+        setpointVelocity = 0;
+        this.position = position;
+        velocity = 0;
+        lastNanos = 0;
+    }
+
+    /** Move the goal by the given number of ticks (positive is the indexing direction). */
+    public void moveBy(int ticks) {
+        goal += ticks;
+    }
+
+    public void moveTo(int target) {
+        goal = target;
+    }
+
+    /**
+     * The goal rounded to whole 60 degree steps, as used by SpindexerSlots.
+     */
+    public int rotationSteps() {
+        return (int) Math.round(goal * SpindexerSlots.STEPS_PER_REV / TICKS_PER_REV);
+    }
+
+    /**
+     * Move the goal by whole 60 degree steps (negative turns back), snapping it to the exact step
+     * position so rounding in the tick constants never builds up.
+     */
+    public void rotateSteps(int steps) {
+        goal = (int) Math.round((rotationSteps() + steps) * TICKS_PER_REV / SpindexerSlots.STEPS_PER_REV);
+    }
+
+    /**
+     * Make the current encoder position the goal and stop any move in progress.
+     */
+    public void holdHere() {
+        goal = position;
+        setpoint = position;
+        setpointVelocity = 0;
+    }
+
+    /**
+     * Read this cycle's encoder data and advance the profile.  Call once per loop after
+     * PrometheusHardware.update().
+     */
+    public void update(HardwareSnapshot sensors) {
+        position = sensors.spindexerPosition() + offset;
+        velocity = sensors.spindexerVelocity();
+
+        long now = sensors.timestampNanos();
+        double dt = lastNanos == 0 ? 0 : Math.min((now - lastNanos) / 1e9, MAX_DT);
+        lastNanos = now;
+
+        double remaining = goal - setpoint;
+        if (remaining == 0 && setpointVelocity == 0) {
+            motor.setTargetPosition(goal - offset);
+            return;
+        }
+
+        // Work in the direction of travel: speed up, but never faster than MAX_VELOCITY or than what
+        // can still be braked to a stop at the goal
+        double direction = Math.signum(remaining);
+        double distance = Math.abs(remaining);
+        double speed = setpointVelocity * direction;
+        speed = Math.min(speed + MAX_ACCELERATION * dt,
+                Math.min(MAX_VELOCITY, Math.sqrt(2 * MAX_ACCELERATION * distance)));
+
+        double step = speed * dt;
+        if (step >= distance || direction == 0) {
+            setpoint = goal;
+            setpointVelocity = 0;
+        } else {
+            setpoint += direction * step;
+            setpointVelocity = direction * speed;
+        }
+
+        motor.setTargetPosition((int) Math.round(setpoint) - offset);
+    }
+
+    /**
+     * True once the profile has finished and the encoder has settled on the goal.
+     */
+    public boolean isAtTarget() {
+        return setpoint == goal
+                && Math.abs(position - goal) <= POSITION_TOLERANCE
+                && Math.abs(velocity) <= SETTLE_VELOCITY;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+}
@@ -0,0 +1,180 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * What is in each of the spindexer's three slots, and how far to turn to bring a slot to a station.
+ *
+ * The contents live in one int, two bits per slot:
+ *     EMPTY (00), LOADED (01, color unknown), GREEN (10), PURPLE (11)
+ * so the whole model can be copied, compared or stored as a single value.
+ *
+ * Geometry is counted in 60 degree steps of spindexer rotation.  Slot i sits at step 2 * i + rotation
+ * (mod 6), where rotation is the spindexer goal rounded to whole steps and positive is the indexing
+ * direction.  The intake (and the ball sensor) are at step INTAKE_STEP and the kicker at KICKER_STEP, half
+ * a slot apart, which is why a volley starts with a 60 degree move.
+ *
+ * The planners return a signed number of steps (-2 to 3) for Spindexer.rotateSteps(), choosing whichever
+ * direction is shorter, or NO_SLOT if nothing suitable is loaded.
+ */
+public class SpindexerSlots {
+
+    public static final int SLOTS = 3;
+    public static final int STEPS_PER_REV = 6;
+
+    // Station positions, in 60 degree steps
+    static final int INTAKE_STEP = 0;
+    static final int KICKER_STEP = 3;
+
+    // Two-bit slot states
+    static final int EMPTY = 0;
+    static final int LOADED = 1;
+    static final int GREEN = 2;
+    static final int PURPLE = 3;
+
+    /** Returned by the planners when no slot qualifies. */
+    public static final int NO_SLOT = Integer.MIN_VALUE;
+
+    // Telemetry text for every possible bits() value, built once so showing it never allocates
+    private static final String[] DESCRIPTIONS = new String[64];
+    static {
+        SpindexerSlots s = new SpindexerSlots();
+        for (int b = 0; b < DESCRIPTIONS.length; b++) {
+            s.setBits(b);
+            DESCRIPTIONS[b] = s.symbol(0) + " " + s.symbol(1) + " " + s.symbol(2);
+        }
+    }
+
+    private int bits = 0;
+
+    /** The packed contents, two bits per slot. */
+    public int bits() {
+        return bits;
+    }
+
+    public void setBits(int bits) {
+        this.bits = bits & 0x3F;
+    }
+
+    public void clearAll() {
+        bits = 0;
+    }
+
+    /** Mark every slot as loaded with an unknown color, e.g. when the robot was loaded by hand. */
+    public void fillUnknown() {
+        bits = LOADED | (LOADED << 2) | (LOADED << 4);
+    }
+
+    /**
+     * Record a ball in a slot.  NONE means a ball of unknown color.
+     */
+    public void load(int slot, ArtifactColor color) {
+        set(slot, color == ArtifactColor.GREEN ? GREEN : color == ArtifactColor.PURPLE ? PURPLE : LOADED);
+    }
+
+    public void clear(int slot) {
+        set(slot, EMPTY);
+    }
+
+    public boolean isLoaded(int slot) {
+        return get(slot) != EMPTY;
+    }
+
+    /** The color in a slot, NONE if it is empty or the color is unknown. */
+    public ArtifactColor colorOf(int slot) {
+        int state = get(slot);
+        return state == GREEN ? ArtifactColor.GREEN : state == PURPLE ? ArtifactColor.PURPLE : ArtifactColor.NONE;
+    }
+
+    /** One character per slot for telemetry: '-' empty, '?' unknown, 'G' green, 'P' purple. */
+    public char symbol(int slot) {
+        return "-?GP".charAt(get(slot));
+    }
+
+    /** All three symbols, e.g. "G ? -".  The strings are preallocated. */
+    public String describe() {
+        return DESCRIPTIONS[bits];
+    }
+
+    public int count() {
+        int n = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (get(slot) != EMPTY) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return bits == 0;
+    }
+
+    public boolean isFull() {
+        return count() == SLOTS;
+    }
+
+    /**
+     * The slot lined up with a station, or -1 if the spindexer is half a slot off it.
+     */
+    public static int slotAt(int station, int rotationSteps) {
+        int offset = Math.floorMod(station - rotationSteps, STEPS_PER_REV);
+        return (offset & 1) == 0 ? offset / 2 : -1;
+    }
+
+    /**
+     * Shortest rotation that brings a loaded slot under the kicker.  A slot holding `preferred` wins if
+     * there is one; otherwise any loaded slot will do.  Pass NONE to take the nearest loaded slot.
+     */
+    public int planShot(ArtifactColor preferred, int rotationSteps) {
+        int best = NO_SLOT;
+        if (preferred != ArtifactColor.NONE) {
+            int wanted = preferred == ArtifactColor.GREEN ? GREEN : PURPLE;
+            best = nearest(wanted, KICKER_STEP, rotationSteps);
+        }
+        if (best == NO_SLOT) {
+            best = nearest(-1, KICKER_STEP, rotationSteps);
+        }
+        return best;
+    }
+
+    /**
+     * Shortest rotation that brings an empty slot under the intake.
+     */
+    public int planIntake(int rotationSteps) {
+        return nearest(EMPTY, INTAKE_STEP, rotationSteps);
+    }
+
+    /**
+     * Shortest signed rotation to bring a slot in `state` (or any loaded slot for -1) to a station.
+     */
+    private int nearest(int state, int station, int rotationSteps) {
+        int best = NO_SLOT;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int s = get(slot);
+            boolean matches = state < 0 ? s != EMPTY : s == state;
+            if (!matches) {
+                continue;
+            }
+            int steps = shortest(station - (2 * slot + rotationSteps));
+            // Equal distances go in the indexing direction
+            if (best == NO_SLOT || Math.abs(steps) < Math.abs(best)
+                    || (Math.abs(steps) == Math.abs(best) && steps > best)) {
+                best = steps;
+            }
+        }
+        return best;
+    }
+
+    /** Wrap a step count into -2..3. */
+    private static int shortest(int steps) {
+        int wrapped = Math.floorMod(steps, STEPS_PER_REV);
+        return wrapped > STEPS_PER_REV / 2 ? wrapped - STEPS_PER_REV : wrapped;
+    }
+
+    private int get(int slot) {
+        return (bits >> (2 * slot)) & 3;
+    }
+
+    private void set(int slot, int state) {
+        bits = (bits & ~(3 << (2 * slot))) | (state << (2 * slot));
+    }
+}
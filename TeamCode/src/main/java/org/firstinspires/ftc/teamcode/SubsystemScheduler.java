@@ -0,0 +1,149 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.util.RobotLog;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs slow or independent work off the control loop, each task on its own thread at its own fixed rate.
+ *
+ *     SubsystemScheduler scheduler = new SubsystemScheduler();
+ *     robot.readColorSensorOn(scheduler, COLOR_RATE);     // during init
+ *     ...
+ *     scheduler.start();                                   // after waitForStart()
+ *     ... control loop ...
+ *     scheduler.stop();
+ *     scheduler.dump("PrometheusDriver");
+ *
+ * The OpMode thread keeps the control loop: the bulk read, every controller and the single flush() of
+ * the outputs.  Tasks are for inputs that are slow to read, such as I2C sensors, and hand their results
+ * back through a TripleBuffer, so a slow read delays only its own task and never the drive output.  Tasks
+ * must not write to motors or servos; CachedMotor and CachedServo belong to the control loop.
+ *
+ * Each task runs with scheduleAtFixedRate on a single-thread executor.  A run that takes longer than the
+ * period is counted as an overrun and the next run starts late, never concurrently.  Run times go into a
+ * LatencyHistogram per task, which dump() writes out after stop().  An exception is logged and counted,
+ * and the task keeps running.
+ */
+public class SubsystemScheduler {
+
+    static final int MAX_TASKS = 8;
+
+    // Time given to running tasks to finish when stopping
+    static final long STOP_TIMEOUT_MS = 250;
+
+    private final String[] names = new String[MAX_TASKS];
+    private final Runnable[] tasks = new Runnable[MAX_TASKS];
+    private final long[] periodNanos = new long[MAX_TASKS];
+    private final LatencyHistogram[] runTimes = new LatencyHistogram[MAX_TASKS];
+    private final ScheduledExecutorService[] executors = new ScheduledExecutorService[MAX_TASKS];
+    private int taskCount = 0;
+
+    // Written by each task's own thread only
+    private final long[] runs = new long[MAX_TASKS];
+    private final long[] overruns = new long[MAX_TASKS];
+    private final long[] errors = new long[MAX_TASKS];
+
+    private boolean started = false;
+
+    /**
+     * Add a task to run rateHz times a second once start() is called.  Call during init.
+     * @return the id for runs() / overruns()
+     */
+    public int addTask(String name, double rateHz, Runnable task) {
+        if (started) {
+            throw new IllegalStateException("Tasks must be added before start()");
+        }
+        if (taskCount == MAX_TASKS) {
+            throw new IllegalStateException("SubsystemScheduler supports at most " + MAX_TASKS + " tasks");
+        }
+        names[taskCount] = name;
+        tasks[taskCount] = task;
+        periodNanos[taskCount] = (long) (1e9 / rateHz);
+        runTimes[taskCount] = new LatencyHistogram();
+        return taskCount++;
+    }
+
+    /** Start every task on its own thread.  Call after waitForStart(). */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        for (int i = 0; i < taskCount; i++) {
+            final int task = i;
+            executors[i] = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Subsystem " + names[task]);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executors[i].scheduleAtFixedRate(() -> runTask(task), 0, periodNanos[i], TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Stop every task and wait briefly for the ones still running. */
+    public void stop() {
+        for (int i = 0; i < taskCount; i++) {
+            if (executors[i] != null) {
+                executors[i].shutdownNow();
+            }
+        }
+        for (int i = 0; i < taskCount; i++) {
+            if (executors[i] == null) {
+                continue;
+            }
+            try {
+                if (!executors[i].awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    RobotLog.ww("SubsystemScheduler", "task %s did not stop in time", names[i]);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executors[i] = null;
+        }
+    }
+
+    /** Completed runs of a task so far (may lag slightly while the task is running). */
+    public long runs(int task) {
+        return runs[task];
+    }
+
+    /** Runs of a task that took longer than its period (may lag slightly while the task is running). */
+    public long overruns(int task) {
+        return overruns[task];
+    }
+
+    /**
+     * Write each task's run-time histogram to /sdcard/FIRST/data/tasks_[name].txt.  Call after stop().
+     */
+    public void dump(String name) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < taskCount; i++) {
+            out.append("# ").append(names[i]).append(" runs=").append(runs[i]).append(" overruns=")
+                    .append(overruns[i]).append(" errors=").append(errors[i]).append('\n');
+            LoopProfiler.appendHistogram(out, names[i], runTimes[i]);
+        }
+
+        DataFile.write("tasks_" + name + ".txt", out, "SubsystemScheduler");
+    }
+
+    private void runTask(int task) {
+        long start = System.nanoTime();
+        try {
+            tasks[task].run();
+        } catch (RuntimeException e) {
+            // scheduleAtFixedRate would cancel the task if this escaped
+            if (errors[task]++ == 0) {
+                RobotLog.ee("SubsystemScheduler", e, "task %s failed", names[task]);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        runTimes[task].recordNanos(elapsed);
+        if (elapsed > periodNanos[task]) {
+            overruns[task]++;
+        }
+        runs[task]++;
+    }
+}
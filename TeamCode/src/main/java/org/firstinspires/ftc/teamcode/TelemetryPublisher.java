@@ -0,0 +1,224 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/*
+ * Sends telemetry from a background thread, so the control loop never formats a string or waits for
+ * the Driver Station.
+ *
+ * Lay the lines out during init, then in the loop only store numbers (or references to existing
+ * objects such as enum constants) and commit() once per cycle:
+ *
+ *     TelemetryPublisher out = new TelemetryPublisher(telemetry, 5);
+ *     int poseLine = out.addLine("Pose", "x %.1f  y %.1f");
+ *     out.start();                            // after waitForStart()
+ *     ...
+ *     out.set(poseLine, x, y);                // in the loop
+ *     out.commit();
+ *     ...
+ *     out.stop();                             // after the loop
+ *
+ * Formats are applied to doubles, so use %f-style conversions (%.0f for counts) or %s.  The loop writes
+ * into its own working copy of the slot table; commit() copies it into the published copy under a lock
+ * that is only ever held for that copy, and the publisher thread takes its own copy the same way before
+ * formatting.  Neither side allocates in the loop thread, and a slow telemetry.update() only delays the
+ * publisher thread.
+ *
+ * While the publisher is running, nothing else may use this Telemetry.
+ */
+public class TelemetryPublisher {
+
+    static final int MAX_LINES = 32;
+    static final int MAX_VALUES = 4;
+
+    // Publish rate limits, Hz
+    static final double MIN_RATE = 1;
+    static final double MAX_RATE = 20;
+
+    private final Telemetry telemetry;
+    private final long periodNanos;
+
+    // Line layout, fixed before start()
+    private final String[] captions = new String[MAX_LINES];
+    private final String[] formats = new String[MAX_LINES];
+    private final Object[][] args = new Object[MAX_LINES][];
+    private int lines = 0;
+
+    // Loop thread's working copy
+    private final double[] values = new double[MAX_LINES * MAX_VALUES];
+    private final Object[] texts = new Object[MAX_LINES];
+
+    // Last committed copy, guarded by lock
+    private final Object lock = new Object();
+    private final double[] publishedValues = new double[MAX_LINES * MAX_VALUES];
+    private final Object[] publishedTexts = new Object[MAX_LINES];
+
+    // Publisher thread's copy
+    private final double[] shownValues = new double[MAX_LINES * MAX_VALUES];
+    private final Object[] shownTexts = new Object[MAX_LINES];
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * @param rateHz how often to send to the Driver Station, clipped to MIN_RATE..MAX_RATE
+     */
+    public TelemetryPublisher(Telemetry telemetry, double rateHz) {
+        this.telemetry = telemetry;
+        double rate = Math.max(MIN_RATE, Math.min(MAX_RATE, rateHz));
+        this.periodNanos = (long) (1e9 / rate);
+    }
+
+    /**
+     * Add a line showing up to MAX_VALUES numbers through a format.  Call during init.
+     * @return the id to pass to set()
+     */
+    public int addLine(String caption, String format) {
+        if (running) {
+            throw new IllegalStateException("Lines must be added before start()");
+        }
+        if (lines == MAX_LINES) {
+            throw new IllegalStateException("TelemetryPublisher supports at most " + MAX_LINES + " lines");
+        }
+        int count = countConversions(format);
+        if (count > MAX_VALUES) {
+            throw new IllegalArgumentException("At most " + MAX_VALUES + " values per line: " + format);
+        }
+        captions[lines] = caption;
+        formats[lines] = format;
+        args[lines] = new Object[count];
+        return lines++;
+    }
+
+    /**
+     * Add a line that shows an object's toString(), set with setText().  Call during init.
+     */
+    public int addLine(String caption) {
+        return addLine(caption, "%s");
+    }
+
+    public void set(int line, double value) {
+        texts[line] = null;
+        values[line * MAX_VALUES] = value;
+    }
+
+    public void set(int line, double a, double b) {
+        texts[line] = null;
+        int o = line * MAX_VALUES;
+        values[o] = a;
+        values[o + 1] = b;
+    }
+
+    public void set(int line, double a, double b, double c) {
+        texts[line] = null;
+        int o = line * MAX_VALUES;
+        values[o] = a;
+        values[o + 1] = b;
+        values[o + 2] = c;
+    }
+
+    public void set(int line, double a, double b, double c, double d) {
+        texts[line] = null;
+        int o = line * MAX_VALUES;
+        values[o] = a;
+        values[o + 1] = b;
+        values[o + 2] = c;
+        values[o + 3] = d;
+    }
+
+    /**
+     * Show an object on a line instead of numbers.  Only the reference is stored; toString() runs on the
+     * publisher thread, so pass something that does not change afterwards (an enum, a constant string).
+     */
+    public void setText(int line, Object text) {
+        texts[line] = text;
+    }
+
+    /**
+     * Publish everything set so far.  Call once per loop, after the last set().
+     */
+    public void commit() {
+        synchronized (lock) {
+            System.arraycopy(values, 0, publishedValues, 0, lines * MAX_VALUES);
+            System.arraycopy(texts, 0, publishedTexts, 0, lines);
+        }
+    }
+
+    /** Start the publisher thread.  Call after waitForStart(). */
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::publishLoop, "TelemetryPublisher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Stop the publisher thread and wait briefly for it, so the OpMode can use telemetry again. */
+    public void stop() {
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(250);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    private void publishLoop() {
+        long next = System.nanoTime();
+        while (running) {
+            synchronized (lock) {
+                System.arraycopy(publishedValues, 0, shownValues, 0, lines * MAX_VALUES);
+                System.arraycopy(publishedTexts, 0, shownTexts, 0, lines);
+            }
+
+            for (int i = 0; i < lines; i++) {
+                Object[] a = args[i];
+                if (shownTexts[i] != null) {
+                    telemetry.addData(captions[i], shownTexts[i]);
+                    continue;
+                }
+                for (int k = 0; k < a.length; k++) {
+                    a[k] = shownValues[i * MAX_VALUES + k];
+                }
+                telemetry.addData(captions[i], formats[i], a);
+            }
+            telemetry.update();
+
+            next += periodNanos;
+            long wait = next - System.nanoTime();
+            if (wait <= 0) {
+                // Fell behind (e.g. a slow transmission); start the schedule again from now
+                next = System.nanoTime();
+                continue;
+            }
+            try {
+                Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /** Number of % conversions in a format, not counting %% and %n. */
+    private static int countConversions(String format) {
+        int count = 0;
+        for (int i = 0; i < format.length() - 1; i++) {
+            if (format.charAt(i) == '%') {
+                char next = format.charAt(i + 1);
+                if (next != '%' && next != 'n') {
+                    count++;
+                } else {
+                    i++;
+                }
+            }
+        }
+        return count;
+    }
+}
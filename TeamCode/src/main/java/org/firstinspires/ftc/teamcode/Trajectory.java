@@ -0,0 +1,83 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * A precomputed, time-parameterized path for the follower, built by TrajectoryBuilder during init.
+ *
+ * The path is stored as states sampled every SAMPLE_DT seconds, packed into a single double[] with
+ * STRIDE values per sample: x, y, heading (inches / radians, same conventions as Odometry) followed by the
+ * field-relative velocities vx, vy and heading rate.  Looking up the target at time t is an index
+ * calculation plus a linear interpolation between two neighbouring samples, so following it costs
+ * almost nothing per loop.
+ */
+public class Trajectory {
+
+    static final double SAMPLE_DT = 0.01;
+
+    static final int X = 0;
+    static final int Y = 1;
+    static final int HEADING = 2;
+    static final int X_VELOCITY = 3;
+    static final int Y_VELOCITY = 4;
+    static final int HEADING_VELOCITY = 5;
+    static final int STRIDE = 6;
+
+    private final double[] samples;
+    private final int count;
+    private final double duration;
+    private final double length;
+
+    Trajectory(double[] samples, int count, double duration, double length) {
+        this.samples = samples;
+        this.count = count;
+        this.duration = duration;
+        this.length = length;
+    }
+
+    /** Seconds from start to end. */
+    public double duration() {
+        return duration;
+    }
+
+    /** Path length in inches. */
+    public double length() {
+        return length;
+    }
+
+    /**
+     * Fill out (at least STRIDE long) with the target state at time t, clamped to the ends of the path.
+     */
+    public void sample(double t, double[] out) {
+        if (t <= 0) {
+            copy(0, out);
+            return;
+        }
+        double index = t / SAMPLE_DT;
+        int i = (int) index;
+        if (i >= count - 1) {
+            copy(count - 1, out);
+            out[X_VELOCITY] = 0;
+            out[Y_VELOCITY] = 0;
+            out[HEADING_VELOCITY] = 0;
+            return;
+        }
+
+        double f = index - i;
+        int a = i * STRIDE;
+        int b = a + STRIDE;
+        for (int k = 0; k < STRIDE; k++) {
+            out[k] = samples[a + k] + (samples[b + k] - samples[a + k]) * f;
+        }
+        // Heading has to be interpolated the short way round
+        out[HEADING] = Odometry.normalize(
+                samples[a + HEADING] + Odometry.normalize(samples[b + HEADING] - samples[a + HEADING]) * f);
+    }
+
+    /** The final pose of the path in out[X], out[Y], out[HEADING]. */
+    public void end(double[] out) {
+        copy(count - 1, out);
+    }
+
+    private void copy(int i, double[] out) {
+        System.arraycopy(samples, i * STRIDE, out, 0, STRIDE);
+    }
+}
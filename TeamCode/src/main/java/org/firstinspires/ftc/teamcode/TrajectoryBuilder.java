@@ -0,0 +1,217 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Builds a Trajectory from a chain of cubic Hermite spline segments.  Meant to run during init, before
+ * waitForStart(), since it does all the heavy math (and allocation) up front:
+ *
+ *     Trajectory toShot = new TrajectoryBuilder(0, 0, 0)
+ *             .splineTo(30, -15, Math.toRadians(-90), 0)
+ *             .build();
+ *
+ * Each segment ends at (x, y) travelling in direction `tangent`, with the robot facing `heading` there.
+ * Heading is blended linearly along each segment, which a mecanum drive can follow independently of the
+ * direction of travel.
+ *
+ * Building happens in three passes:
+ *   1. sample each spline finely, recording arc length and curvature,
+ *   2. find the fastest speed profile that respects MAX_VELOCITY, MAX_ACCELERATION and the centripetal
+ *      limit on curves (a forward pass for acceleration, a backward pass for braking),
+ *   3. resample the path at fixed time steps into the Trajectory's sample array.
+ */
+public class TrajectoryBuilder {
+
+    // Limits for the velocity profile (inches, seconds)
+    static final double MAX_VELOCITY = 40;
+    static final double MAX_ACCELERATION = 40;
+    static final double MAX_CENTRIPETAL_ACCELERATION = 60;
+
+    // Spline sample points per segment for the arc length / curvature pass
+    static final int POINTS_PER_SEGMENT = 200;
+
+    private static final int MAX_SEGMENTS = 16;
+
+    // Segment end states; index 0 is the start
+    private final double[] xs = new double[MAX_SEGMENTS + 1];
+    private final double[] ys = new double[MAX_SEGMENTS + 1];
+    private final double[] tangents = new double[MAX_SEGMENTS + 1];
+    private final double[] headings = new double[MAX_SEGMENTS + 1];
+    private int segments = 0;
+
+    private double maxVelocity = MAX_VELOCITY;
+    private double maxAcceleration = MAX_ACCELERATION;
+
+    /**
+     * Start at the given pose, initially travelling in the direction the robot faces.
+     */
+    public TrajectoryBuilder(double x, double y, double heading) {
+        xs[0] = x;
+        ys[0] = y;
+        tangents[0] = heading;
+        headings[0] = heading;
+    }
+
+    /** Override the default limits for this trajectory only. */
+    public TrajectoryBuilder limits(double maxVelocity, double maxAcceleration) {
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        return this;
+    }
+
+    /**
+     * Start the next segment travelling in a different direction.  Only valid before the first segment,
+     * e.g. to begin with a sideways move.
+     */
+    public TrajectoryBuilder startTangent(double tangent) {
+        if (segments != 0) {
+            throw new IllegalStateException("startTangent() must come before the first segment");
+        }
+        tangents[0] = tangent;
+        return this;
+    }
+
+    /**
+     * Curve to (x, y), arriving travelling in direction `tangent` and facing `heading` (radians).
+     */
+    public TrajectoryBuilder splineTo(double x, double y, double tangent, double heading) {
+        if (segments == MAX_SEGMENTS) {
+            throw new IllegalStateException("TrajectoryBuilder supports at most " + MAX_SEGMENTS + " segments");
+        }
+        segments++;
+        xs[segments] = x;
+        ys[segments] = y;
+        tangents[segments] = tangent;
+        headings[segments] = heading;
+        return this;
+    }
+
+    /**
+     * Straight line to (x, y), arriving facing `heading`.  The previous segment should end travelling in
+     * this direction too, or the robot will have to change direction sharply at the joint.
+     */
+    public TrajectoryBuilder lineTo(double x, double y, double heading) {
+        double tangent = Math.atan2(y - ys[segments], x - xs[segments]);
+        if (segments == 0) {
+            tangents[0] = tangent;
+        }
+        return splineTo(x, y, tangent, heading);
+    }
+
+    public Trajectory build() {
+        if (segments == 0) {
+            throw new IllegalStateException("Trajectory needs at least one segment");
+        }
+
+        // --- 1. Sample the splines ---
+        int n = segments * POINTS_PER_SEGMENT + 1;
+        double[] px = new double[n];
+        double[] py = new double[n];
+        double[] ph = new double[n];
+        double[] dirX = new double[n];
+        double[] dirY = new double[n];
+        double[] s = new double[n];
+        double[] curvature = new double[n];
+
+        int p = 0;
+        for (int seg = 0; seg < segments; seg++) {
+            double x0 = xs[seg], y0 = ys[seg], x1 = xs[seg + 1], y1 = ys[seg + 1];
+            double chord = Math.hypot(x1 - x0, y1 - y0);
+            double mx0 = chord * Math.cos(tangents[seg]), my0 = chord * Math.sin(tangents[seg]);
+            double mx1 = chord * Math.cos(tangents[seg + 1]), my1 = chord * Math.sin(tangents[seg + 1]);
+            double segmentStartS = p == 0 ? 0 : s[p - 1];
+            int firstPoint = p;
+
+            for (int k = (seg == 0 ? 0 : 1); k <= POINTS_PER_SEGMENT; k++) {
+                double u = (double) k / POINTS_PER_SEGMENT;
+                double u2 = u * u, u3 = u2 * u;
+
+                // Hermite basis and its first two derivatives
+                double h00 = 2 * u3 - 3 * u2 + 1, h10 = u3 - 2 * u2 + u, h01 = -2 * u3 + 3 * u2, h11 = u3 - u2;
+                double d00 = 6 * u2 - 6 * u, d10 = 3 * u2 - 4 * u + 1, d01 = -6 * u2 + 6 * u, d11 = 3 * u2 - 2 * u;
+                double e00 = 12 * u - 6, e10 = 6 * u - 4, e01 = -12 * u + 6, e11 = 6 * u - 2;
+
+                px[p] = h00 * x0 + h10 * mx0 + h01 * x1 + h11 * mx1;
+                py[p] = h00 * y0 + h10 * my0 + h01 * y1 + h11 * my1;
+                double dx = d00 * x0 + d10 * mx0 + d01 * x1 + d11 * mx1;
+                double dy = d00 * y0 + d10 * my0 + d01 * y1 + d11 * my1;
+                double ddx = e00 * x0 + e10 * mx0 + e01 * x1 + e11 * mx1;
+                double ddy = e00 * y0 + e10 * my0 + e01 * y1 + e11 * my1;
+
+                double speed = Math.hypot(dx, dy);
+                if (speed > 1e-9) {
+                    dirX[p] = dx / speed;
+                    dirY[p] = dy / speed;
+                    curvature[p] = Math.abs(dx * ddy - dy * ddx) / (speed * speed * speed);
+                } else {
+                    dirX[p] = Math.cos(tangents[seg]);
+                    dirY[p] = Math.sin(tangents[seg]);
+                }
+                s[p] = p == 0 ? 0 : s[p - 1] + Math.hypot(px[p] - px[p - 1], py[p] - py[p - 1]);
+                p++;
+            }
+
+            // Blend heading linearly by distance along this segment
+            double segmentLength = s[p - 1] - segmentStartS;
+            double turn = Odometry.normalize(headings[seg + 1] - headings[seg]);
+            for (int k = firstPoint; k < p; k++) {
+                double f = segmentLength > 1e-9 ? (s[k] - segmentStartS) / segmentLength : 1.0;
+                ph[k] = Odometry.normalize(headings[seg] + turn * f);
+            }
+        }
+
+        // --- 2. Velocity profile over arc length ---
+        double[] v = new double[n];
+        for (int i = 0; i < n; i++) {
+            double limit = maxVelocity;
+            if (curvature[i] > 1e-9) {
+                limit = Math.min(limit, Math.sqrt(MAX_CENTRIPETAL_ACCELERATION / curvature[i]));
+            }
+            v[i] = limit;
+        }
+        v[0] = 0;
+        v[n - 1] = 0;
+        for (int i = 1; i < n; i++) {
+            double ds = s[i] - s[i - 1];
+            v[i] = Math.min(v[i], Math.sqrt(v[i - 1] * v[i - 1] + 2 * maxAcceleration * ds));
+        }
+        for (int i = n - 2; i >= 0; i--) {
+            double ds = s[i + 1] - s[i];
+            v[i] = Math.min(v[i], Math.sqrt(v[i + 1] * v[i + 1] + 2 * maxAcceleration * ds));
+        }
+
+        // Time at each point, assuming constant acceleration between points
+        double[] t = new double[n];
+        for (int i = 1; i < n; i++) {
+            double ds = s[i] - s[i - 1];
+            double vAvg = (v[i] + v[i - 1]) / 2;
+            t[i] = t[i - 1] + (vAvg > 1e-9 ? ds / vAvg : 0);
+        }
+        double duration = t[n - 1];
+
+        // --- 3. Resample at fixed time steps ---
+        int count = (int) Math.ceil(duration / Trajectory.SAMPLE_DT) + 1;
+        double[] samples = new double[count * Trajectory.STRIDE];
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            double time = Math.min(i * Trajectory.SAMPLE_DT, duration);
+            while (j < n - 2 && t[j + 1] < time) {
+                j++;
+            }
+            double span = t[j + 1] - t[j];
+            double f = span > 1e-12 ? (time - t[j]) / span : 0;
+            if (f > 1) f = 1;
+
+            int o = i * Trajectory.STRIDE;
+            double speed = v[j] + (v[j + 1] - v[j]) * f;
+            samples[o + Trajectory.X] = px[j] + (px[j + 1] - px[j]) * f;
+            samples[o + Trajectory.Y] = py[j] + (py[j + 1] - py[j]) * f;
+            samples[o + Trajectory.HEADING] =
+                    Odometry.normalize(ph[j] + Odometry.normalize(ph[j + 1] - ph[j]) * f);
+            samples[o + Trajectory.X_VELOCITY] = speed * dirX[j];
+            samples[o + Trajectory.Y_VELOCITY] = speed * dirY[j];
+            samples[o + Trajectory.HEADING_VELOCITY] =
+                    span > 1e-12 ? Odometry.normalize(ph[j + 1] - ph[j]) / span : 0;
+        }
+
+        return new Trajectory(samples, count, duration, s[n - 1]);
+    }
+}
@@ -0,0 +1,98 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Command that drives a precomputed Trajectory using the Odometry pose.
+ *
+ * Each loop it looks up the target state for the elapsed time, takes the target velocity as feedforward,
+ * adds a proportional correction for the position and heading error, converts the result to
+ * robot-relative axis commands and hands them to MecanumDrive.  The trajectory did all the expensive math
+ * at build time, so this is a lookup, a rotation and a few multiplies.
+ *
+ * The command finishes once the trajectory's time is up and the robot is within tolerance of the end
+ * pose, or SETTLE_TIMEOUT later regardless.  Time is the snapshot's (robot.cycleNanos()), so the path is
+ * sampled at the moment the sensors were read, and follows simulated time under SimRobot.
+ */
+public class TrajectoryFollower extends Command {
+
+    // Top wheel speed of the drive (312 RPM motors), used to turn inches/s into MecanumDrive commands
+    static final double MAX_WHEEL_SPEED = 312 / 60.0 * Math.PI * Odometry.DRIVE_WHEEL_DIAMETER_IN;
+
+    // Correction gains: inches/s per inch of error, radians/s per radian of error
+    static final double K_TRANSLATION = 4.0;
+    static final double K_HEADING = 4.0;
+
+    // When the robot counts as having arrived
+    static final double POSITION_TOLERANCE = 1.0;                    // inches
+    static final double HEADING_TOLERANCE = Math.toRadians(2);       // radians
+    static final double SETTLE_TIMEOUT = 0.5;                        // seconds past the end of the path
+
+    private final Trajectory trajectory;
+    private final Odometry odometry;
+    private final MecanumDrive drive;
+    private final PrometheusHardware robot;
+
+    private final double[] target = new double[Trajectory.STRIDE];
+    private long startNanos;
+    private double positionError, headingError;
+
+    public TrajectoryFollower(Trajectory trajectory, PrometheusHardware robot, Odometry odometry, MecanumDrive drive) {
+        this.trajectory = trajectory;
+        this.robot = robot;
+        this.odometry = odometry;
+        this.drive = drive;
+    }
+
+    @Override
+    public void initialize() {
+        startNanos = robot.cycleNanos();
+        positionError = Double.MAX_VALUE;
+        headingError = Double.MAX_VALUE;
+    }
+
+    @Override
+    public void execute() {
+        trajectory.sample(elapsed(), target);
+
+        double heading = odometry.getHeading();
+        double xError = target[Trajectory.X] - odometry.getX();
+        double yError = target[Trajectory.Y] - odometry.getY();
+        headingError = Odometry.normalize(target[Trajectory.HEADING] - heading);
+        positionError = Math.hypot(xError, yError);
+
+        // Field-relative velocity command: feedforward plus correction
+        double vx = target[Trajectory.X_VELOCITY] + K_TRANSLATION * xError;
+        double vy = target[Trajectory.Y_VELOCITY] + K_TRANSLATION * yError;
+        double omega = target[Trajectory.HEADING_VELOCITY] + K_HEADING * headingError;
+
+        // Rotate into the robot frame (x forward, y left)
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        double forward = vx * cos + vy * sin;
+        double left = -vx * sin + vy * cos;
+
+        // MecanumDrive wants lateral to the right and yaw clockwise, as fractions of full speed
+        drive.drive(forward / MAX_WHEEL_SPEED,
+                -left / MAX_WHEEL_SPEED,
+                -omega * Odometry.DRIVE_TURN_RADIUS_IN / MAX_WHEEL_SPEED,
+                robot.snapshot());
+    }
+
+    @Override
+    public boolean isFinished() {
+        double t = elapsed();
+        if (t < trajectory.duration()) {
+            return false;
+        }
+        boolean arrived = positionError <= POSITION_TOLERANCE && Math.abs(headingError) <= HEADING_TOLERANCE;
+        return arrived || t >= trajectory.duration() + SETTLE_TIMEOUT;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        drive.stop();
+    }
+
+    private double elapsed() {
+        return (robot.cycleNanos() - startNanos) / 1e9;
+    }
+}
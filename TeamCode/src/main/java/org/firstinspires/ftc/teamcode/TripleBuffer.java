@@ -0,0 +1,70 @@
+package org.firstinspires.ftc.teamcode;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Hands the latest value from one writer thread to one reader thread without locks or allocation.
+ *
+ * Three preallocated objects rotate between the writer (filling one), the reader (looking at another)
+ * and the hand-off slot in the middle.  Each side only ever swaps its own object with the middle one,
+ * in a single atomic operation, so neither side waits for the other and the reader always sees a
+ * complete value, never one half-written:
+ *
+ *     // writer thread
+ *     Reading r = buffer.writeBuffer();
+ *     r.red = ...;
+ *     buffer.publish();
+ *
+ *     // reader thread, once per cycle
+ *     if (buffer.update()) { ... buffer.read() is new ... }
+ *
+ * Values the reader does not get to before the next publish() are simply replaced; only the newest
+ * counts.  Each object must only be touched by the side that currently holds it.
+ */
+public final class TripleBuffer<T> {
+
+    // The middle index with FRESH set has been published but not yet picked up
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final Object[] buffers = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;   // Writer's
+    private int front = 2;  // Reader's
+
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = factory.get();
+        }
+    }
+
+    /** The object to fill in.  Writer thread only. */
+    @SuppressWarnings("unchecked")
+    public T writeBuffer() {
+        return (T) buffers[back];
+    }
+
+    /** Make the filled-in object the latest value.  Writer thread only. */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Pick up the latest value, if one was published since the last call.  Reader thread only.
+     * @return true if read() now returns a new value
+     */
+    public boolean update() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        front = middle.getAndSet(front) & INDEX_MASK;
+        return true;
+    }
+
+    /** The value picked up by the last update().  Reader thread only. */
+    @SuppressWarnings("unchecked")
+    public T read() {
+        return (T) buffers[front];
+    }
+}
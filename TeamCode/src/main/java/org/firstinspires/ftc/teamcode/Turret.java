@@ -0,0 +1,197 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.util.RobotLog;
+
+/*
+ * Auto-aim for the outtake turret (outtake_turn), so the drivers no longer turn the chassis to aim.
+ *
+ * Two loops:
+ *   - outer, at the camera rate: each goal tag bearing from AprilTagVision fixes the goal's direction on
+ *     the field.  The camera is on the chassis, so that direction is the robot's heading when the frame
+ *     was captured plus the bearing.  The frame is 50-100 ms old by then, so the heading at capture time
+ *     is taken back from the current one with Odometry's angular velocity.
+ *   - inner, every loop: the turret angle that points at that field direction is recomputed from the
+ *     current heading (led by the angular velocity over LEAD_TIME) and sent as a RUN_TO_POSITION target,
+ *     whose position loop runs on the hub.  The turret therefore keeps pointing at the goal while the
+ *     robot turns between frames, and after up to TARGET_TIMEOUT_NS without one.
+ *
+ *     turret.addVisionBearing(fix.goalBearing, fix.captureNanos, sensors);   // when fix.goalSeen
+ *     turret.update(sensors);                                                // every loop, after Odometry
+ *     kick.setFireGate(turret::isOnTarget);
+ *
+ * Angles are in radians from straight ahead, counter-clockwise positive, and limited to MIN/MAX_ANGLE so
+ * the turret never winds up its wiring.  The encoder is zeroed in reset(), so the turret must be centered
+ * at init.  With auto-aim off the turret goes back to center.
+ *
+ * The limits are only as good as the gearing, Calibration.turretTicksPerRev: with a wrong ratio a
+ * commanded 90 degrees could be 180.  A value outside MIN/MAX_TICKS_PER_REV is treated as a mistake:
+ * auto-aim stays off and the turret holds center, which is safe at any gearing.
+ */
+public class Turret {
+
+    // Plausible range for Calibration.turretTicksPerRev; anything outside disables auto-aim
+    static final double MIN_TICKS_PER_REV = 500;
+    static final double MAX_TICKS_PER_REV = 20000;
+
+    // Travel either side of straight ahead
+    static final double MIN_ANGLE = Math.toRadians(-90);
+    static final double MAX_ANGLE = Math.toRadians(90);
+
+    // Power cap for the hub's RUN_TO_POSITION loop
+    static final double MAX_POWER = 1.0;
+
+    // Camera yaw on the chassis; bearings are measured from the camera's axis
+    static final double CAMERA_YAW = Math.toRadians(AprilTagVision.CAMERA_YAW);
+
+    // How far ahead the target leads the robot's rotation (hub loop and motor response), seconds
+    static final double LEAD_TIME = 0.03;
+
+    // Frames older than this are not used
+    static final double MAX_FIX_AGE = 0.3;
+
+    // Keep aiming at the last field direction for this long without a new bearing
+    static final long TARGET_TIMEOUT_NS = 1_000_000_000L;
+
+    // "On target": within this angle, and turning within this of the rate the target is moving at
+    static final double ON_TARGET_TOLERANCE = Math.toRadians(1.5);
+    static final double SETTLE_VELOCITY = Math.toRadians(20);
+
+    private final CachedMotor motor;
+    private final Odometry odometry;
+    private final double ticksPerRadian;
+    private final boolean gearingValid;
+
+    private boolean autoAim;
+    private double aimOffset = 0;
+
+    // Goal direction in Odometry's frame, and when it was last seen
+    private double goalDirection = 0;
+    private long goalNanos = 0;
+    private boolean haveGoal = false;
+
+    private double angle = 0;
+    private double velocity = 0;
+    private double target = 0;
+    private double targetVelocity = 0;
+    private boolean targetClamped = false;
+    private long lastNanos = 0;
+
+    public Turret(CachedMotor motor, Odometry odometry, Calibration calibration) {
+        this.motor = motor;
+        this.odometry = odometry;
+        double ticksPerRev = calibration.turretTicksPerRev;
+        gearingValid = ticksPerRev >= MIN_TICKS_PER_REV && ticksPerRev <= MAX_TICKS_PER_REV;
+        if (!gearingValid) {
+            RobotLog.ww("Turret", "turret_ticks_per_rev %.1f is implausible, auto-aim disabled", ticksPerRev);
+        }
+        // Holding center only needs target 0, so any positive scale will do then
+        ticksPerRadian = (gearingValid ? ticksPerRev : MIN_TICKS_PER_REV) / (2 * Math.PI);
+        autoAim = gearingValid;
+        motor.motor().setZeroPowerBehavior(DcMotor.ZeroPowerBehavior.BRAKE);
+    }
+
+    /**
+     * Zero the encoder with the turret centered and hold it there.  Call during init.
+     */
+    public void reset() {
+        motor.motor().setMode(DcMotor.RunMode.STOP_AND_RESET_ENCODER);
+
+        // The target has to reach the hub before RUN_TO_POSITION is selected
+        motor.invalidate();
+        motor.setTargetPosition(0);
+        motor.flush();
+        motor.motor().setMode(DcMotor.RunMode.RUN_TO_POSITION);
+        motor.setPower(MAX_POWER);
+        motor.flush();
+
+        angle = 0;
+        velocity = 0;
+        target = 0;
+        haveGoal = false;
+    }
+
+    /** Aim at the goal (true) or hold the turret centered (false).  Stays off if the gearing is invalid. */
+    public void setAutoAim(boolean autoAim) {
+        this.autoAim = autoAim && gearingValid;
+    }
+
+    /** False if Calibration.turretTicksPerRev was rejected; the turret then only holds center. */
+    public boolean isGearingValid() {
+        return gearingValid;
+    }
+
+    public boolean isAutoAim() {
+        return autoAim;
+    }
+
+    /** Aim this far (radians, counter-clockwise) off the tag, e.g. from the shot table. */
+    public void setAimOffset(double radians) {
+        aimOffset = radians;
+    }
+
+    /**
+     * A goal tag seen at `bearing` (radians, counter-clockwise from the camera axis) in a frame captured at
+     * captureNanos.  Call after Odometry.update() in the same loop.
+     */
+    public void addVisionBearing(double bearing, long captureNanos, HardwareSnapshot sensors) {
+        double age = (sensors.timestampNanos() - captureNanos) / 1e9;
+        if (age > MAX_FIX_AGE) {
+            return;
+        }
+        // Heading when the frame was captured, from the current heading and turn rate
+        double headingAtCapture = odometry.getHeading() - odometry.getHeadingVelocity() * Math.max(0, age);
+        goalDirection = Odometry.normalize(headingAtCapture + CAMERA_YAW + bearing);
+        goalNanos = sensors.timestampNanos();
+        haveGoal = true;
+    }
+
+    /**
+     * Read the encoder and point at the goal for this cycle.  Call once per loop after Odometry.update().
+     */
+    public void update(HardwareSnapshot sensors) {
+        long now = sensors.timestampNanos();
+        angle = sensors.outtakeTurnPosition() / ticksPerRadian;
+        velocity = sensors.outtakeTurnVelocity() / ticksPerRadian;
+
+        targetVelocity = 0;
+        if (!autoAim) {
+            target = 0;
+        } else if (hasTarget(now)) {
+            double heading = odometry.getHeading() + odometry.getHeadingVelocity() * LEAD_TIME;
+            target = Odometry.normalize(goalDirection - heading + aimOffset);
+            targetVelocity = -odometry.getHeadingVelocity();
+        }
+        // Otherwise hold the last target
+
+        double clamped = Math.max(MIN_ANGLE, Math.min(MAX_ANGLE, target));
+        targetClamped = clamped != target;
+        target = clamped;
+        lastNanos = now;
+
+        motor.setTargetPosition((int) Math.round(target * ticksPerRadian));
+    }
+
+    /**
+     * True when auto-aim has a recent goal, the goal is within the turret's travel, and the turret has
+     * settled on it (following it, if the robot is turning).
+     */
+    public boolean isOnTarget() {
+        return autoAim && hasTarget(lastNanos) && !targetClamped
+                && Math.abs(target - angle) <= ON_TARGET_TOLERANCE
+                && Math.abs(velocity - targetVelocity) <= SETTLE_VELOCITY;
+    }
+
+    /** True if a goal bearing has been seen within TARGET_TIMEOUT_NS. */
+    public boolean hasTarget(long nowNanos) {
+        return haveGoal && nowNanos - goalNanos <= TARGET_TIMEOUT_NS;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public double getTarget() {
+        return target;
+    }
+}
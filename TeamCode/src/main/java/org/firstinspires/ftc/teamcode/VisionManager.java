@@ -0,0 +1,173 @@
+package org.firstinspires.ftc.teamcode;
+
+import android.os.Process;
+
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.VisionProcessor;
+
+import java.util.Locale;
+
+/*
+ * Runs vision processors only in the phases of the match that use their results.
+ *
+ *     VisionManager cameras = new VisionManager();
+ *     int front = cameras.addPortal(vision.portal());
+ *     cameras.addProcessor(front, vision.processor(), VisionManager.Phase.DRIVE, VisionManager.Phase.AIM);
+ *     ...
+ *     cameras.setPhase(VisionManager.Phase.SHOOT);    // whenever the robot changes what it is doing
+ *
+ * Each processor is enabled in its phases and disabled otherwise (setProcessorEnabled).  A portal with no
+ * enabled processor stops streaming, so its camera costs nothing, and resumes when one is needed again.
+ * With several portals, one per camera as in ConceptAprilTagMultiPortal, this is also how the robot
+ * switches cameras: only the cameras whose processors the phase needs are streaming.  setPhase() does
+ * nothing when the phase has not changed, and the portal calls it makes do not block, so it is safe to
+ * call every loop.
+ *
+ * To show what this saves, the process CPU time (all threads, from Process.getElapsedCpuTime()) is added
+ * up per phase at each phase change.  cpuLoad() is CPU time per second of wall time in a phase; comparing a
+ * run with setAlwaysOn(true) against a normal run shows the CPU time given back to the control loop.
+ * dump() writes the totals out after the OpMode.
+ */
+public class VisionManager {
+
+    /** What the robot is doing, as far as vision is concerned. */
+    public enum Phase { DRIVE, INTAKE, AIM, SHOOT }
+
+    static final int MAX_PORTALS = 4;
+    static final int MAX_PROCESSORS = 8;
+
+    private final VisionPortal[] portals = new VisionPortal[MAX_PORTALS];
+    private int portalCount = 0;
+
+    private final VisionProcessor[] processors = new VisionProcessor[MAX_PROCESSORS];
+    private final int[] processorPortal = new int[MAX_PROCESSORS];
+    private final int[] processorPhases = new int[MAX_PROCESSORS];   // bit per Phase ordinal
+    private int processorCount = 0;
+
+    private final boolean[] streaming = new boolean[MAX_PORTALS];
+    private final boolean[] needed = new boolean[MAX_PORTALS];
+
+    private Phase phase = null;
+    private boolean alwaysOn = false;
+
+    // CPU accounting per phase
+    private final long[] cpuMillis = new long[Phase.values().length];
+    private final long[] wallNanos = new long[Phase.values().length];
+    private long phaseStartCpuMillis = 0;
+    private long phaseStartNanos = 0;
+
+    /**
+     * Add a portal to manage.  Null (no camera) is accepted and ignored.
+     * @return the id for addProcessor()
+     */
+    public int addPortal(VisionPortal portal) {
+        if (portalCount == MAX_PORTALS) {
+            throw new IllegalStateException("VisionManager supports at most " + MAX_PORTALS + " portals");
+        }
+        portals[portalCount] = portal;
+        streaming[portalCount] = portal != null;   // portals start streaming when built
+        return portalCount++;
+    }
+
+    /** Run a processor of that portal only in the given phases.  Call during init. */
+    public void addProcessor(int portal, VisionProcessor processor, Phase... phases) {
+        if (processorCount == MAX_PROCESSORS) {
+            throw new IllegalStateException("VisionManager supports at most " + MAX_PROCESSORS + " processors");
+        }
+        int mask = 0;
+        for (Phase p : phases) {
+            mask |= 1 << p.ordinal();
+        }
+        processors[processorCount] = processor;
+        processorPortal[processorCount] = portal;
+        processorPhases[processorCount] = mask;
+        processorCount++;
+    }
+
+    /** Keep every processor running regardless of phase, for a baseline to compare cpuLoad() against. */
+    public void setAlwaysOn(boolean alwaysOn) {
+        this.alwaysOn = alwaysOn;
+        if (phase != null) {
+            apply(phase);
+        }
+    }
+
+    /** Switch to a phase.  Only does work when the phase changes. */
+    public void setPhase(Phase newPhase) {
+        if (newPhase == phase) {
+            return;
+        }
+        accountPhase();
+        phase = newPhase;
+        apply(newPhase);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * CPU seconds used per second of wall time while in a phase (1.0 = one core busy), up to the last
+     * phase change.  0 if the phase has not been left yet.
+     */
+    public double cpuLoad(Phase p) {
+        long wall = wallNanos[p.ordinal()];
+        return wall == 0 ? 0 : cpuMillis[p.ordinal()] * 1e6 / wall;
+    }
+
+    /** Write CPU time per phase to /sdcard/FIRST/data/vision_phases_[name].txt.  Call after the loop. */
+    public void dump(String name) {
+        accountPhase();
+        StringBuilder out = new StringBuilder();
+        out.append(alwaysOn ? "# processors always on\n" : "# processors by phase\n");
+        out.append("phase,wall_s,cpu_s,cpu_load\n");
+        for (Phase p : Phase.values()) {
+            out.append(String.format(Locale.US, "%s,%.2f,%.2f,%.3f%n",
+                    p, wallNanos[p.ordinal()] / 1e9, cpuMillis[p.ordinal()] / 1e3, cpuLoad(p)));
+        }
+
+        DataFile.write("vision_phases_" + name + ".txt", out, "VisionManager");
+    }
+
+    // Add the time since the last call to the current phase
+    private void accountPhase() {
+        long nowNanos = System.nanoTime();
+        long nowCpu = Process.getElapsedCpuTime();
+        if (phase != null) {
+            cpuMillis[phase.ordinal()] += nowCpu - phaseStartCpuMillis;
+            wallNanos[phase.ordinal()] += nowNanos - phaseStartNanos;
+        }
+        phaseStartCpuMillis = nowCpu;
+        phaseStartNanos = nowNanos;
+    }
+
+    private void apply(Phase p) {
+        int bit = 1 << p.ordinal();
+        for (int i = 0; i < portalCount; i++) {
+            needed[i] = false;
+        }
+        for (int i = 0; i < processorCount; i++) {
+            VisionPortal portal = portals[processorPortal[i]];
+            if (portal == null || processors[i] == null) {
+                continue;
+            }
+            boolean enabled = alwaysOn || (processorPhases[i] & bit) != 0;
+            if (portal.getProcessorEnabled(processors[i]) != enabled) {
+                portal.setProcessorEnabled(processors[i], enabled);
+            }
+            needed[processorPortal[i]] |= enabled;
+        }
+
+        for (int i = 0; i < portalCount; i++) {
+            if (portals[i] == null || needed[i] == streaming[i]) {
+                continue;
+            }
+            if (needed[i]) {
+                portals[i].resumeStreaming();
+            } else {
+                portals[i].stopStreaming();
+            }
+            streaming[i] = needed[i];
+        }
+    }
+}
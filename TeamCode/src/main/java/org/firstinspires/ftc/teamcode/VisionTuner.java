@@ -0,0 +1,210 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.ExposureControl;
+import org.firstinspires.ftc.robotcore.external.hardware.camera.controls.GainControl;
+import org.firstinspires.ftc.vision.VisionPortal;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Keeps the AprilTag pipeline at the best trade-off between range and frame rate while it runs.
+ *
+ * Decimation: the detector looks at a 1/decimation size image.  Close tags are big enough to find at
+ * DECIMATION_MAX, which is much cheaper and so gives more frames per second; far tags need full
+ * resolution.  The range of the nearest tag picks the decimation, with some hysteresis:
+ *
+ *     nearest tag   < NEAR_RANGE   -> DECIMATION_MAX
+ *                   < FAR_RANGE    -> DECIMATION_MID
+ *     further, or no tag for a bit -> DECIMATION_MIN   (look for tags far away)
+ *
+ * Frame rate: the achieved FPS is measured at each decimation.  If the hub CPU cannot keep TARGET_FPS at
+ * the decimation range asks for, the next cheaper one that did is used instead.  The measurements are
+ * forgotten every FPS_MEMORY_NS so a cheaper setting is tried again when the load drops.
+ *
+ * Exposure and gain: as in ConceptAprilTagOptimizeExposure, once the camera is streaming the exposure is
+ * set to manual and short (less motion blur while driving) and the gain is raised to make up for it.  The
+ * steps are spread over successive runs instead of sleeping between them.  The resolution is fixed when
+ * the VisionPortal is built (AprilTagVision.CAMERA_WIDTH x CAMERA_HEIGHT) and cannot change at runtime.
+ *
+ * onFrame() runs on AprilTagVision's scheduler task; the getters may be read from the control loop.
+ */
+public class VisionTuner {
+
+    // Decimation levels and the ranges (inches) where they change
+    static final int DECIMATION_MIN = 1;
+    static final int DECIMATION_MID = 2;
+    static final int DECIMATION_MAX = 3;
+    static final double NEAR_RANGE = 30;
+    static final double FAR_RANGE = 60;
+    static final double RANGE_HYSTERESIS = 5;
+
+    // Without a tag for this long, drop to DECIMATION_MIN to find far tags
+    static final long NO_TAG_TIMEOUT_NS = 500_000_000L;
+
+    // Frame rate the pipeline should keep
+    static final double TARGET_FPS = 20;
+    static final long FPS_SETTLE_NS = 500_000_000L;    // after a decimation change, before measuring
+    static final long FPS_MEMORY_NS = 5_000_000_000L;  // forget measurements this often
+    static final double FPS_SMOOTHING = 0.2;           // weight of each new FPS sample
+
+    // Camera settings, clamped to what the camera supports
+    static final long EXPOSURE_MS = 6;
+    static final int GAIN = 250;
+
+    // Pipeline latency smoothing
+    static final double LATENCY_SMOOTHING = 0.1;
+
+    private final VisionPortal portal;
+    private final AprilTagProcessor processor;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // Camera setup progress: 0 = waiting for the stream, then one step per run, done at 3
+    private int cameraStep = 0;
+
+    private int decimation = -1;
+    private long decimationChangedNanos = 0;
+    private long lastTagNanos = 0;
+    private double nearestRange = Double.POSITIVE_INFINITY;
+    private final double[] fpsAt = new double[DECIMATION_MAX + 1];   // 0 = not measured
+    private long fpsResetNanos = 0;
+
+    // Read from the control loop
+    private volatile double fps = 0;
+    private volatile double latencyMillis = 0;
+    private volatile int currentDecimation = DECIMATION_MIN;
+
+    public VisionTuner(VisionPortal portal, AprilTagProcessor processor) {
+        this.portal = portal;
+        this.processor = processor;
+    }
+
+    /**
+     * Called for each new detection list (empty when the frame had no tags).  Scheduler thread only.
+     */
+    public void onFrame(List<AprilTagDetection> detections, long nowNanos) {
+        setUpCamera();
+
+        double nearest = Double.POSITIVE_INFINITY;
+        for (AprilTagDetection detection : detections) {
+            if (detection.ftcPose != null) {
+                nearest = Math.min(nearest, detection.ftcPose.range);
+            }
+            // Detection time covers capture, transfer, conversion and the detector itself
+            long age = nowNanos - detection.frameAcquisitionNanoTime;
+            if (age > 0) {
+                latency.recordNanos(age);
+                latencyMillis += LATENCY_SMOOTHING * (age / 1e6 - latencyMillis);
+            }
+        }
+        if (nearest != Double.POSITIVE_INFINITY) {
+            nearestRange = nearest;
+            lastTagNanos = nowNanos;
+        } else if (nowNanos - lastTagNanos > NO_TAG_TIMEOUT_NS) {
+            nearestRange = Double.POSITIVE_INFINITY;
+        }
+
+        measureFps(nowNanos);
+        setDecimation(chooseDecimation(), nowNanos);
+    }
+
+    /** Frames per second the portal is processing. */
+    public double getFps() {
+        return fps;
+    }
+
+    /** Smoothed time from frame capture to detection, in milliseconds. */
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public int getDecimation() {
+        return currentDecimation;
+    }
+
+    /** Capture-to-detection times, for LoopProfiler.appendHistogram().  Read after the scheduler stops. */
+    public LatencyHistogram latencyHistogram() {
+        return latency;
+    }
+
+    // --- Internals ---
+
+    private int chooseDecimation() {
+        // From range, with hysteresis around the current level
+        int wanted;
+        double near = NEAR_RANGE + (decimation == DECIMATION_MAX ? RANGE_HYSTERESIS : -RANGE_HYSTERESIS);
+        double far = FAR_RANGE + (decimation >= DECIMATION_MID ? RANGE_HYSTERESIS : -RANGE_HYSTERESIS);
+        if (nearestRange < near) {
+            wanted = DECIMATION_MAX;
+        } else if (nearestRange < far) {
+            wanted = DECIMATION_MID;
+        } else {
+            wanted = DECIMATION_MIN;
+        }
+
+        // Cheaper if that level has been measured below the target frame rate
+        while (wanted < DECIMATION_MAX && fpsAt[wanted] != 0 && fpsAt[wanted] < TARGET_FPS) {
+            wanted++;
+        }
+        return wanted;
+    }
+
+    private void measureFps(long nowNanos) {
+        fps = portal.getFps();
+        if (nowNanos - fpsResetNanos > FPS_MEMORY_NS) {
+            fpsResetNanos = nowNanos;
+            for (int i = 0; i < fpsAt.length; i++) {
+                fpsAt[i] = 0;
+            }
+        }
+        if (decimation > 0 && nowNanos - decimationChangedNanos > FPS_SETTLE_NS) {
+            fpsAt[decimation] = fpsAt[decimation] == 0
+                    ? fps : fpsAt[decimation] + FPS_SMOOTHING * (fps - fpsAt[decimation]);
+        }
+    }
+
+    private void setDecimation(int d, long nowNanos) {
+        if (d == decimation) {
+            return;
+        }
+        processor.setDecimation(d);
+        decimation = d;
+        currentDecimation = d;
+        decimationChangedNanos = nowNanos;
+    }
+
+    private void setUpCamera() {
+        if (cameraStep == 3) {
+            return;
+        }
+        if (cameraStep == 0) {
+            if (portal.getCameraState() == VisionPortal.CameraState.STREAMING) {
+                cameraStep = 1;
+            }
+            return;
+        }
+
+        ExposureControl exposure = portal.getCameraControl(ExposureControl.class);
+        GainControl gain = portal.getCameraControl(GainControl.class);
+        if (cameraStep == 1) {
+            // The mode change needs a moment before the exposure can be set
+            if (exposure != null && exposure.getMode() != ExposureControl.Mode.Manual) {
+                exposure.setMode(ExposureControl.Mode.Manual);
+            }
+            cameraStep = 2;
+        } else {
+            if (exposure != null) {
+                long ms = Math.max(exposure.getMinExposure(TimeUnit.MILLISECONDS),
+                        Math.min(EXPOSURE_MS, exposure.getMaxExposure(TimeUnit.MILLISECONDS)));
+                exposure.setExposure(ms, TimeUnit.MILLISECONDS);
+            }
+            if (gain != null) {
+                gain.setGain(Math.max(gain.getMinGain(), Math.min(GAIN, gain.getMaxGain())));
+            }
+            cameraStep = 3;
+        }
+    }
+}
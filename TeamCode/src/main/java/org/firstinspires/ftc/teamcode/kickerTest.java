@@ -18,6 +18,15 @@ public class kickerTest extends LinearOpMode {
     // Define the increment for changing the servo position
     static final double POSITION_INCREMENT = 0.01;
 
+    // Holding a D-pad button repeats the step after REPEAT_DELAY, every REPEAT_INTERVAL
+    static final double REPEAT_DELAY = 0.4;
+    static final double REPEAT_INTERVAL = 0.05;
+
+    private final GamepadInput input = new GamepadInput();
+
+    // Positions are saved to the hub's calibration file for PrometheusDriver and Auto
+    private Calibration calibration;
+
     @Override
     public void runOpMode() {
         // --- Initialization ---
@@ -27,6 +36,7 @@ public class kickerTest extends LinearOpMode {
         // Make sure your configuration file has servos named "kicker_1" and "kicker_2"
         kickerServo1 = hardwareMap.get(Servo.class, "kicker_1");
         kickerServo2 = hardwareMap.get(Servo.class, "kicker_2");
+        calibration = Calibration.load();
 
         // To make the servos move in opposite directions, we set one servo's
         // position to be the inverse of the other.
@@ -35,21 +45,37 @@ public class kickerTest extends LinearOpMode {
         telemetry.addData("Status", "Initialized");
         telemetry.addData(">", "Press Start to begin.");
         telemetry.addData(">", "Use D-pad Up/Down on gamepad 1 to control servos.");
+        telemetry.addData(">", "X saves the position as retracted, Y as extended.");
         telemetry.update();
 
+        LoopProfiler profiler = new LoopProfiler();
+        int servoSection     = profiler.addSection("servo");
+        int telemetrySection = profiler.addSection("telemetry");
+
+        TelemetryPublisher publisher = new TelemetryPublisher(telemetry, 10);
+        int positionLine = publisher.addLine("Servo Position", "%.2f");
+        int kickersLine  = publisher.addLine("Kicker 1 / 2 Position", "%.2f / %.2f");
+        int savedLine    = publisher.addLine("Saved Retracted / Extended", "%.2f / %.2f");
+        int saveLine     = publisher.addLine("Save");
+        int loopLine     = publisher.addLine("Loop", LoopProfiler.REPORT_FORMAT);
+
         // Wait for the game to start (driver presses PLAY)
         waitForStart();
+        publisher.start();
 
         // --- Main Loop ---
         while (opModeIsActive()) {
+            profiler.startLoop();
 
             // --- Servo Control (Gamepad 1 D-pad) ---
+            input.update(gamepad1);
+
             // Increase position
-            if (gamepad1.dpad_up) {
+            if (input.repeating(GamepadInput.DPAD_UP, REPEAT_DELAY, REPEAT_INTERVAL)) {
                 servoPosition += POSITION_INCREMENT;
             }
             // Decrease position
-            else if (gamepad1.dpad_down) {
+            else if (input.repeating(GamepadInput.DPAD_DOWN, REPEAT_DELAY, REPEAT_INTERVAL)) {
                 servoPosition -= POSITION_INCREMENT;
             }
 
@@ -61,16 +87,29 @@ public class kickerTest extends LinearOpMode {
             kickerServo1.setPosition(servoPosition);
             kickerServo2.setPosition(1.0 - servoPosition);
 
+            // PrometheusHardware reverses kicker_1 instead of kicker_2, so its position for the same
+            // physical kicker is 1 - servoPosition
+            if (input.pressed(GamepadInput.X)) {
+                calibration.kickerRetracted = 1.0 - servoPosition;
+                publisher.setText(saveLine, calibration.save() ? "Saved" : "FAILED, see robot log");
+            } else if (input.pressed(GamepadInput.Y)) {
+                calibration.kickerExtended = 1.0 - servoPosition;
+                publisher.setText(saveLine, calibration.save() ? "Saved" : "FAILED, see robot log");
+            }
+            profiler.lap(servoSection);
+
 
             // --- Telemetry ---
             // Display the current servo position
-            telemetry.addData("Servo Position", servoPosition);
-            telemetry.addData("Kicker 1 Position", kickerServo1.getPosition());
-            telemetry.addData("Kicker 2 Position", kickerServo2.getPosition());
-            telemetry.update();
-
-            // Small delay to prevent button press spam
-            sleep(20);
+            publisher.set(positionLine, servoPosition);
+            publisher.set(kickersLine, kickerServo1.getPosition(), kickerServo2.getPosition());
+            publisher.set(savedLine, calibration.kickerRetracted, calibration.kickerExtended);
+            profiler.report(publisher, loopLine);
+            publisher.commit();
+            profiler.lap(telemetrySection);
         }
+
+        publisher.stop();
+        profiler.dump("kickerTest");
     }
 }
@@ -0,0 +1,50 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/*
+ * Runs Auto's own control cycle on SimRobot: the routine's waits and the trajectory follower run on the
+ * snapshot clock, so the whole routine plays out in simulated time.
+ */
+public class AutoSimTest {
+
+    // The 30 s autonomous period
+    static final double AUTO_SECONDS = 30.0;
+
+    // Where STEP 1 drives to (arriving travelling at -90 degrees, still facing 0), and how close the
+    // follower has to get
+    static final double SHOOT_X = 30;
+    static final double SHOOT_Y = -15;
+    static final double SHOOT_HEADING = 0;
+    static final double POSITION_TOLERANCE = 1.5;                  // inches
+    static final double HEADING_TOLERANCE = Math.toRadians(3);
+
+    private SimRobot sim;
+    private Auto auto;
+    private boolean running = true;
+
+    @Before
+    public void setUp() {
+        sim = new SimRobot();
+        sim.preload(ArtifactColor.GREEN, ArtifactColor.PURPLE, ArtifactColor.PURPLE);
+        auto = new Auto();
+        auto.initialize(sim.hardware(), sim.hardwareMap(), new Calibration());
+        auto.begin();
+    }
+
+    @Test
+    public void drivesToTheShootingSpotAndFiresOneBall() {
+        sim.runUntil(() -> !running, AUTO_SECONDS, () -> running = auto.cycle());
+
+        assertFalse("routine did not finish in " + AUTO_SECONDS + " s", running);
+        assertEquals(SHOOT_X, auto.odometry.getX(), POSITION_TOLERANCE);
+        assertEquals(SHOOT_Y, auto.odometry.getY(), POSITION_TOLERANCE);
+        assertEquals(0, Odometry.normalize(auto.odometry.getHeading() - SHOOT_HEADING), HEADING_TOLERANCE);
+        assertEquals(1, sim.shotCount());
+        assertEquals(2, auto.slots.count());
+    }
+}
@@ -0,0 +1,76 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * KickSequence's fire gate on SimRobot: a gate that never opens must give the volley up after
+ * Calibration.aimTimeout without firing, and one that opens late must still fire everything.
+ */
+public class KickSequenceSimTest {
+
+    // Give up on a volley after this much simulated time
+    static final double VOLLEY_TIMEOUT = 15.0;
+
+    private SimRobot sim;
+    private PrometheusHardware robot;
+    private Flywheel flywheel;
+    private Spindexer spindexer;
+    private final SpindexerSlots slots = new SpindexerSlots();
+    private final Calibration calibration = new Calibration();
+    private KickSequence kick;
+    private boolean gateOpen = false;
+
+    @Before
+    public void setUp() {
+        sim = new SimRobot();
+        sim.preload(ArtifactColor.GREEN, ArtifactColor.PURPLE, ArtifactColor.PURPLE);
+        robot = sim.hardware();
+        flywheel = new Flywheel(robot.outtakeMotor1, robot.outtakeMotor2);
+        spindexer = new Spindexer(robot.spindexer);
+        spindexer.reset();
+        slots.load(0, ArtifactColor.GREEN);
+        slots.load(1, ArtifactColor.PURPLE);
+        slots.load(2, ArtifactColor.PURPLE);
+        kick = new KickSequence(robot, flywheel, spindexer, slots, calibration);
+        kick.retract();
+        kick.setFireGate(() -> gateOpen);
+        robot.flush();
+    }
+
+    @Test
+    public void closedGateGivesUpWithoutFiring() {
+        kick.start(ArtifactColor.NONE);
+        double seconds = sim.runUntil(kick::isIdle, VOLLEY_TIMEOUT, this::cycle);
+
+        assertTrue("volley did not give up", kick.isIdle());
+        assertTrue(kick.aimTimedOut());
+        assertEquals(0, sim.shotCount());
+        assertEquals(3, slots.count());
+        assertEquals(calibration.aimTimeout, seconds, 0.1);
+    }
+
+    @Test
+    public void gateOpeningLateStillFiresEverything() {
+        kick.start(ArtifactColor.NONE);
+        sim.runFor(calibration.aimTimeout / 2, this::cycle);
+        gateOpen = true;
+        sim.runUntil(kick::isIdle, VOLLEY_TIMEOUT, this::cycle);
+
+        assertTrue("volley did not finish", kick.isIdle());
+        assertFalse(kick.aimTimedOut());
+        assertEquals(3, sim.shotCount());
+    }
+
+    private void cycle() {
+        HardwareSnapshot sensors = robot.update();
+        flywheel.update(sensors);
+        spindexer.update(sensors);
+        kick.update(sensors);
+        robot.flush();
+    }
+}
@@ -0,0 +1,101 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Localizer's latency compensation and gate, without vision: the robot drives straight along x at
+ * SPEED, and tag poses are handed to addVisionPose() with capture times in the past, as AprilTagVision
+ * would.  Odometry's origin is the field origin, so field and odometry coordinates are the same.
+ */
+public class LocalizerTest {
+
+    static final long CYCLE_NANOS = (long) (SimRobot.CYCLE_SECONDS * 1e9);
+    static final double SPEED = 40;                 // inches per second
+    static final double STEP = SPEED * SimRobot.CYCLE_SECONDS;
+    static final double TAG_RANGE = 30;             // inches
+
+    private Odometry odometry;
+    private Localizer localizer;
+    private final HardwareSnapshot sensors = new HardwareSnapshot();
+    private final long startNanos = 1_000_000_000L;
+    private int cycles = 0;
+
+    @Before
+    public void setUp() {
+        odometry = new Odometry(new SimRobot().hardware());
+        localizer = new Localizer(odometry);
+        localizer.setFieldOrigin(0, 0, 0);
+        record();
+    }
+
+    @Test
+    public void delayedFixIsAppliedAtCaptureTimeAndReplayed() {
+        drive(100);
+
+        // 100 ms ago the robot was at x = 16 (20 cycles back), and really 1 inch to the left of odometry
+        long capture = cycleNanos(cycles - 20);
+        double xAtCapture = STEP * (cycles - 20);
+        assertTrue(localizer.addVisionPose(xAtCapture, 1.0, 0, TAG_RANGE, capture));
+
+        assertEquals(1, localizer.getAccepted());
+        // Pulled most of the way towards the tag, and still 100 ms of driving further on than the capture
+        assertTrue("y " + odometry.getY(), odometry.getY() > 0.5 && odometry.getY() <= 1.0);
+        assertEquals(STEP * cycles, odometry.getX(), 0.05);
+        assertEquals(localizer.getX(), odometry.getX(), 1e-9);
+        assertEquals(localizer.getY(), odometry.getY(), 1e-9);
+
+        // Later cycles carry on from the corrected pose (the heading was nudged a little too)
+        double y = odometry.getY();
+        drive(10);
+        assertEquals(y, localizer.getY(), 0.05);
+        assertEquals(STEP * cycles, localizer.getX(), 0.05);
+    }
+
+    @Test
+    public void outlierIsRejectedByTheGate() {
+        drive(100);
+        double x = odometry.getX();
+
+        long capture = cycleNanos(cycles - 20);
+        assertFalse(localizer.addVisionPose(STEP * (cycles - 20), 30, 0, TAG_RANGE, capture));
+
+        assertEquals(1, localizer.getRejected());
+        assertEquals(0, localizer.getAccepted());
+        assertEquals(x, odometry.getX(), 1e-9);
+        assertEquals(0, odometry.getY(), 1e-9);
+    }
+
+    @Test
+    public void fixOlderThanTheHistoryIsStale() {
+        drive(Localizer.HISTORY + 50);
+
+        assertFalse(localizer.addVisionPose(0, 1.0, 0, TAG_RANGE, cycleNanos(0)));
+
+        assertEquals(1, localizer.getStale());
+        assertEquals(0, localizer.getAccepted());
+        assertEquals(0, odometry.getY(), 1e-9);
+    }
+
+    private long cycleNanos(int cycle) {
+        return startNanos + cycle * CYCLE_NANOS;
+    }
+
+    /** Drive forward STEP per cycle for n cycles. */
+    private void drive(int n) {
+        for (int i = 0; i < n; i++) {
+            odometry.integrate(STEP, 0, 0);
+            cycles++;
+            record();
+        }
+    }
+
+    private void record() {
+        sensors.timestampNanos = cycleNanos(cycles);
+        localizer.update(sensors);
+    }
+}
@@ -0,0 +1,254 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/*
+ * Micro-benchmarks for the per-cycle code.  They live with the sim tests and are not part of the robot app.
+ * They take about ten seconds, so the test only runs when asked for:
+ *
+ *     ./gradlew :TeamCode:testDebugUnitTest --tests '*LoopBenchmarks*' -Dbenchmarks=true
+ *
+ * SimRobot only builds the PrometheusHardware; nothing timed goes through its devices, whose proxies box
+ * every argument and would hide the code under test.  The sequence benchmark feeds the sequences a
+ * HardwareSnapshot that the benchmark moves along itself (see sequenceCycle()).
+ *
+ * Each benchmark is warmed up for WARMUP_NS, then timed in batches of BATCH_OPS calls for MEASURE_NS.
+ * Reported per call: median and p99 of the batch averages, and bytes allocated.  Allocation is read from
+ * the JVM's per-thread allocation counter (the same source as JMH's gc.alloc.rate.norm); a JVM without
+ * it shows "n/a".  Every loop benchmark must stay at 0 B/op, and the test fails otherwise; "telemetry
+ * format" is the String.format() baseline TelemetryPublisher replaced and is expected to allocate.
+ */
+public class LoopBenchmarks {
+
+    static final long WARMUP_NS = 500_000_000L;
+    static final long MEASURE_NS = 1_000_000_000L;
+    static final int BATCH_OPS = 1000;
+    static final int MAX_BATCHES = 100_000;
+
+    // Snapshot time per control cycle in the sequence benchmark
+    static final long CYCLE_NANOS = (long) (SimRobot.CYCLE_SECONDS * 1e9);
+
+    // Benchmarks that allocate on purpose, for comparison
+    static final String BASELINE = "telemetry format";
+
+    /** One call of the code under test; i varies the input so nothing is constant-folded. */
+    interface Body {
+        void run(int i);
+    }
+
+    /** Result of one benchmark. */
+    static final class Result {
+        final String name;
+        final double medianNs;
+        final double p99Ns;
+        final double bytesPerOp; // NaN if unknown
+
+        Result(String name, double medianNs, double p99Ns, double bytesPerOp) {
+            this.name = name;
+            this.medianNs = medianNs;
+            this.p99Ns = p99Ns;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString() {
+            String alloc = Double.isNaN(bytesPerOp) ? "n/a" : String.format(Locale.US, "%.1f B/op", bytesPerOp);
+            return String.format(Locale.US, "%-22s %9.1f ns/op  p99 %9.1f  %s", name, medianNs, p99Ns, alloc);
+        }
+    }
+
+    // Results are folded in here so the JIT cannot drop the work
+    static volatile double sink;
+
+    private final PrometheusHardware robot = new SimRobot().hardware();
+    private final MecanumDrive drive = new MecanumDrive(robot);
+    private final Odometry odometry = new Odometry(robot);
+    private final Spindexer spindexer = new Spindexer(robot.spindexer);
+    private final Flywheel flywheel = new Flywheel(robot.outtakeMotor1, robot.outtakeMotor2);
+    private final Calibration calibration = new Calibration();
+    private final ArtifactClassifier classifier = new ArtifactClassifier(calibration);
+    private final SpindexerSlots slots = new SpindexerSlots();
+    private final KickSequence kick = new KickSequence(robot, flywheel, spindexer, slots, calibration);
+    private final IntakeSequence intake = new IntakeSequence(robot, spindexer, slots, calibration);
+    private final TelemetryPublisher publisher = new TelemetryPublisher(null, 5);
+    private final int poseLine = publisher.addLine("Pose", "x %.1f  y %.1f  h %.1f");
+    private final int stateLine = publisher.addLine("Kick State");
+    private final double[] wheels = new double[4];
+
+    // What the sequences see in the sequence benchmark
+    private final HardwareSnapshot sensors = new HardwareSnapshot();
+
+    @Test
+    public void loopBenchmarks() {
+        assumeTrue("run with -Dbenchmarks=true", Boolean.getBoolean("benchmarks"));
+
+        StringBuilder report = new StringBuilder();
+        boolean allocationFree = true;
+        for (Result result : runAll()) {
+            report.append(result).append('\n');
+            allocationFree &= result.name.equals(BASELINE) || !(result.bytesPerOp > 0);
+        }
+        System.out.print(report);
+        assertTrue("a loop benchmark allocates:\n" + report, allocationFree);
+    }
+
+    /** Run every benchmark in turn. */
+    List<Result> runAll() {
+        spindexer.reset();
+        kick.retract();
+        robot.update();
+        sensors.timestampNanos = robot.cycleNanos();
+
+        String[] names = {
+                "mecanum kinematics", "mecanum drive", "odometry integrate", "color classify", "slot planner",
+                "intake + volley cycle", "telemetry set+commit", BASELINE
+        };
+        Body[] bodies = {
+                i -> {
+                    MecanumDrive.inverseKinematics((i & 255) / 255.0, ((i >> 8) & 255) / 255.0 - 0.5, 0.3, wheels);
+                    sink += wheels[0];
+                },
+                i -> {
+                    drive.drive((i & 255) / 255.0, -0.2, ((i >> 8) & 255) / 255.0 - 0.5, robot.snapshot());
+                    sink += drive.getWheelPowers()[MecanumDrive.LEFT_FRONT];
+                },
+                i -> {
+                    odometry.integrate(0.01 * (i & 15), 0.005, 0.001 * ((i & 7) - 3));
+                    sink += odometry.getX();
+                },
+                i -> sink += classifier.classify(40 + (i & 127), 200 - (i & 63), 110).ordinal(),
+                i -> {
+                    slots.setBits(i);
+                    sink += slots.planShot(ArtifactColor.PURPLE, i % 6);
+                },
+                i -> sequenceCycle(),
+                i -> {
+                    publisher.set(poseLine, i * 0.1, i * 0.2, i * 0.3);
+                    publisher.setText(stateLine, kick.getState());
+                    publisher.commit();
+                },
+                // What one telemetry line cost the loop before TelemetryPublisher
+                i -> sink += String.format(Locale.US, "x %.1f  y %.1f  h %.1f", i * 0.1, i * 0.2, i * 0.3).length()
+        };
+
+        List<Result> results = new ArrayList<>();
+        for (int k = 0; k < bodies.length; k++) {
+            results.add(measure(names[k], bodies[k]));
+        }
+        return results;
+    }
+
+    /**
+     * One cycle of the intake and volley sequences as PrometheusDriver runs them.  When both are idle the
+     * next one starts: an intake if the slots are empty, a volley otherwise.
+     *
+     * Instead of hardware, the snapshot is moved along CYCLE_NANOS and set to what the last cycle asked
+     * for: the spindexer at its profile setpoint and the flywheels at their target speed.  That is a few
+     * field stores, so the time is the sequences' own, and they go through every state as on the robot.
+     * Nothing is flushed; the cached motors and servos just keep the latest request.
+     */
+    private void sequenceCycle() {
+        if (intake.isIdle() && kick.isIdle()) {
+            if (slots.count() == 0) {
+                intake.start();
+            } else {
+                kick.start(ArtifactColor.NONE);
+            }
+        }
+
+        sensors.timestampNanos += CYCLE_NANOS;
+        sensors.spindexerPosition = robot.spindexer.getTargetPosition();
+        sensors.outtake1Velocity = flywheel.getTargetVelocity();
+        sensors.outtake2Velocity = flywheel.getTargetVelocity();
+
+        flywheel.update(sensors);
+        spindexer.update(sensors);
+        intake.update(sensors);
+        kick.update(sensors);
+        sink += kick.getBallsKicked();
+    }
+
+    static Result measure(String name, Body body) {
+        int i = 0;
+        long end = System.nanoTime() + WARMUP_NS;
+        while (System.nanoTime() < end) {
+            for (int k = 0; k < BATCH_OPS; k++) {
+                body.run(i++);
+            }
+        }
+
+        double[] batches = new double[MAX_BATCHES];
+        int count = 0;
+        long ops = 0;
+        long allocatedBefore = allocatedBytes();
+        end = System.nanoTime() + MEASURE_NS;
+        while (count < batches.length) {
+            long start = System.nanoTime();
+            for (int k = 0; k < BATCH_OPS; k++) {
+                body.run(i++);
+            }
+            long now = System.nanoTime();
+            batches[count++] = (double) (now - start) / BATCH_OPS;
+            ops += BATCH_OPS;
+            if (now >= end) {
+                break;
+            }
+        }
+        long allocatedAfter = allocatedBytes();
+
+        Arrays.sort(batches, 0, count);
+        double median = batches[count / 2];
+        double p99 = batches[Math.min(count - 1, (int) (count * 0.99))];
+        double bytes = allocatedBefore < 0 || allocatedAfter < 0
+                ? Double.NaN : (double) (allocatedAfter - allocatedBefore - allocationOverhead()) / ops;
+        return new Result(name, median, p99, bytes);
+    }
+
+    // com.sun.management.ThreadMXBean.getCurrentThreadAllocatedBytes(), looked up reflectively because
+    // java.lang.management does not exist on Android
+    private static Object threadBean;
+    private static Method allocatedBytesMethod;
+    private static boolean allocationLookupDone = false;
+
+    /** Bytes one allocatedBytes() call itself allocates (the boxed result), so it can be taken back out. */
+    static long allocationOverhead() {
+        long overhead = Long.MAX_VALUE;
+        for (int k = 0; k < 10; k++) {
+            long before = allocatedBytes();
+            overhead = Math.min(overhead, allocatedBytes() - before);
+        }
+        return overhead;
+    }
+
+    /** Bytes allocated by this thread so far, or -1 if the JVM cannot tell. */
+    static long allocatedBytes() {
+        if (!allocationLookupDone) {
+            allocationLookupDone = true;
+            try {
+                Class<?> factory = Class.forName("java.lang.management.ManagementFactory");
+                threadBean = factory.getMethod("getThreadMXBean").invoke(null);
+                Class<?> beanType = Class.forName("com.sun.management.ThreadMXBean");
+                allocatedBytesMethod = beanType.getMethod("getThreadAllocatedBytes", long.class);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                allocatedBytesMethod = null;
+            }
+        }
+        if (allocatedBytesMethod == null) {
+            return -1;
+        }
+        try {
+            return (Long) allocatedBytesMethod.invoke(threadBean, Thread.currentThread().getId());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
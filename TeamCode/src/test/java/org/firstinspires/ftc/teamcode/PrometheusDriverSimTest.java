@@ -0,0 +1,118 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Runs PrometheusDriver's own control cycle on SimRobot, with simulated time advancing
+ * SimRobot.CYCLE_SECONDS per cycle and the driver's buttons pressed on a Gamepad: Y loads three balls,
+ * then D-pad right (purple first) and A fire them.  The color sensor and IMU are read inline, so every run
+ * is the same.
+ *
+ * The limits leave some room over what the sequences take today (intake about 3.1 s, volley about 3.2 s,
+ * about 17 hardware calls per cycle); going over one means a sequence or the loop got slower.
+ *
+ * The host CPU time of driver.cycle() is measured too and printed.  It depends on the machine, so it is
+ * only checked against MAX_CYCLE_MILLIS, far above today's figure, to catch a pathological slowdown.
+ */
+public class PrometheusDriverSimTest {
+
+    // Give up on a sequence after this much simulated time
+    static final double SEQUENCE_TIMEOUT = 15.0;
+
+    static final double MAX_INTAKE_SECONDS = 4.0;
+    static final double MAX_VOLLEY_SECONDS = 4.0;
+    static final double MAX_CALLS_PER_CYCLE = 25;
+    static final double MAX_CYCLE_MILLIS = 1.0;
+
+    private SimRobot sim;
+    private PrometheusDriver driver;
+    private final Gamepad gamepad = new Gamepad();
+    private long cycleNanos = 0;   // Host time spent in driver.cycle()
+
+    @Before
+    public void setUp() {
+        Handoff.clear();
+        sim = new SimRobot();
+        driver = new PrometheusDriver();
+        driver.initialize(sim.hardware(), sim.hardwareMap(), new Calibration(), new ShotTable(), false);
+
+        sim.feed(ArtifactColor.GREEN);
+        sim.feed(ArtifactColor.PURPLE);
+        sim.feed(ArtifactColor.PURPLE);
+    }
+
+    @Test
+    public void intakeFillsEverySlot() {
+        double seconds = intake();
+
+        assertTrue("intake did not finish", driver.intake.isIdle());
+        assertEquals("G P P", driver.slots.describe());
+        assertTrue("intake took " + seconds + " s", seconds <= MAX_INTAKE_SECONDS);
+    }
+
+    @Test
+    public void volleyFiresPurpleFirst() {
+        intake();
+        double seconds = volley();
+
+        assertTrue("volley did not finish", driver.kick.isIdle());
+        assertEquals("PPG", sim.shots());
+        assertTrue("volley took " + seconds + " s", seconds <= MAX_VOLLEY_SECONDS);
+    }
+
+    @Test
+    public void hardwareCallsPerCycle() {
+        long callsBefore = sim.hardwareCalls();
+        long cyclesBefore = sim.cycles();
+        intake();
+        volley();
+
+        double callsPerCycle = (double) (sim.hardwareCalls() - callsBefore) / (sim.cycles() - cyclesBefore);
+        assertTrue(callsPerCycle + " hardware calls per cycle", callsPerCycle <= MAX_CALLS_PER_CYCLE);
+    }
+
+    @Test
+    public void cycleTime() {
+        long cyclesBefore = sim.cycles();
+        intake();
+        volley();
+
+        double millis = cycleNanos / 1e6 / (sim.cycles() - cyclesBefore);
+        System.out.printf(Locale.US, "PrometheusDriver.cycle(): %.1f us per cycle on this machine%n", millis * 1e3);
+        assertTrue(millis + " ms per cycle", millis <= MAX_CYCLE_MILLIS);
+    }
+
+    /** Press Y and run until the intake sequence is done; returns the simulated seconds. */
+    private double intake() {
+        gamepad.y = true;
+        sim.cycle(this::cycle);
+        gamepad.y = false;
+        return SimRobot.CYCLE_SECONDS + sim.runUntil(driver.intake::isIdle, SEQUENCE_TIMEOUT, this::cycle);
+    }
+
+    /** Pick purple first, press A and run until the volley is done; returns the simulated seconds. */
+    private double volley() {
+        gamepad.dpad_right = true;
+        sim.cycle(this::cycle);
+        gamepad.dpad_right = false;
+
+        gamepad.a = true;
+        sim.cycle(this::cycle);
+        gamepad.a = false;
+        return SimRobot.CYCLE_SECONDS + sim.runUntil(driver.kick::isIdle, SEQUENCE_TIMEOUT, this::cycle);
+    }
+
+    private void cycle() {
+        long start = System.nanoTime();
+        driver.cycle(gamepad);
+        cycleNanos += System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,117 @@
+package org.firstinspires.ftc.teamcode;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * ShotTable's interpolation and upkeep, and its SettingsFile round trip through a temporary file.
+ */
+public class ShotTableTest {
+
+    static final double EPSILON = 1e-9;
+
+    private File file;
+    private ShotTable table;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("shot_table", ".bin");
+        file.deleteOnExit();
+        table = new ShotTable(file);
+        table.put(40, 1000, 0.10);
+        table.put(80, 1400, 0.20);
+        table.put(60, 1100, 0.30);
+    }
+
+    @Test
+    public void emptyTableGivesTheDefault() {
+        ShotTable empty = new ShotTable();
+        empty.lookup(50);
+        assertEquals(ShotTable.DEFAULT_VELOCITY, empty.getVelocity(), EPSILON);
+        assertEquals(0, empty.getOffset(), EPSILON);
+    }
+
+    @Test
+    public void lookupOutsideTheTableUsesTheNearestEnd() {
+        table.lookup(10);
+        assertEquals(1000, table.getVelocity(), EPSILON);
+        assertEquals(0.10, table.getOffset(), EPSILON);
+
+        table.lookup(200);
+        assertEquals(1400, table.getVelocity(), EPSILON);
+        assertEquals(0.20, table.getOffset(), EPSILON);
+    }
+
+    @Test
+    public void lookupOnAnEntryReturnsIt() {
+        table.lookup(60);
+        assertEquals(1100, table.getVelocity(), EPSILON);
+        assertEquals(0.30, table.getOffset(), EPSILON);
+    }
+
+    @Test
+    public void lookupBetweenEntriesInterpolates() {
+        table.lookup(50);
+        assertEquals(1050, table.getVelocity(), EPSILON);
+        assertEquals(0.20, table.getOffset(), EPSILON);
+
+        table.lookup(75);
+        assertEquals(1325, table.getVelocity(), EPSILON);
+        assertEquals(0.225, table.getOffset(), EPSILON);
+    }
+
+    @Test
+    public void putKeepsTheEntriesSortedAndMergesCloseOnes() {
+        assertEquals(0, table.put(20, 900, 0));
+        assertEquals(4, table.size());
+        table.put(61, 1150, 0.3);   // within MERGE_RANGE of 60, so it replaces it
+
+        double[] expected = { 20, 40, 61, 80 };
+        assertEquals(expected.length, table.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], table.rangeAt(i), EPSILON);
+        }
+        assertEquals(1150, table.velocityAt(2), EPSILON);
+        assertEquals(2, table.nearest(58));
+    }
+
+    @Test
+    public void saveAndReloadRoundTrip() {
+        assertTrue(table.save());
+
+        ShotTable loaded = new ShotTable(file);
+        assertTrue(loaded.reload());
+        assertEquals(table.size(), loaded.size());
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(table.rangeAt(i), loaded.rangeAt(i), EPSILON);
+            assertEquals(table.velocityAt(i), loaded.velocityAt(i), EPSILON);
+            assertEquals(table.offsetAt(i), loaded.offsetAt(i), EPSILON);
+        }
+    }
+
+    @Test
+    public void corruptedFileFallsBackToTheDefault() throws IOException {
+        assertTrue(table.save());
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            // Flip a byte of the first entry, so the CRC no longer matches
+            raw.seek(SettingsFile.HEADER_BYTES);
+            int b = raw.read();
+            raw.seek(SettingsFile.HEADER_BYTES);
+            raw.write(b ^ 0xFF);
+        }
+
+        ShotTable loaded = new ShotTable(file);
+        assertFalse(loaded.reload());
+        assertEquals(0, loaded.size());
+        loaded.lookup(50);
+        assertEquals(ShotTable.DEFAULT_VELOCITY, loaded.getVelocity(), EPSILON);
+    }
+}
@@ -0,0 +1,35 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Simulated ColorSensor.  SimRobot sets the channels from whatever is in front of it each step.
+ */
+class SimColorSensor extends SimDevice {
+
+    private int red, green, blue;
+
+    SimColorSensor(String name) {
+        super(name);
+    }
+
+    void setColor(int red, int green, int blue) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    @Override
+    void step(double dt) {
+    }
+
+    @Override
+    Object call(String method, Object[] args) {
+        switch (method) {
+            case "red":   return red;
+            case "green": return green;
+            case "blue":  return blue;
+            case "alpha": return (red + green + blue) / 3;
+            case "argb":  return 0xFF000000 | (red & 0xFF) << 16 | (green & 0xFF) << 8 | (blue & 0xFF);
+            default:      return NOT_HANDLED;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.HardwareDevice;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/*
+ * Base for the simulated devices used by SimRobot.
+ *
+ * Each simulated device is handed to the code under test as a dynamic proxy for the SDK interface
+ * (DcMotorEx, Servo, ...), so only the methods our code actually uses need a model; anything else
+ * returns a zero / false / null default.  Every call through the proxy is counted, which is how
+ * the sim tests measure hardware calls per loop.
+ */
+abstract class SimDevice implements InvocationHandler {
+
+    private final String name;
+    private long calls = 0;
+
+    SimDevice(String name) {
+        this.name = name;
+    }
+
+    /** Create the proxy that stands in for the real device. */
+    <T extends HardwareDevice> T proxy(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, this));
+    }
+
+    String name() {
+        return name;
+    }
+
+    /** Calls made through the proxy so far. */
+    long calls() {
+        return calls;
+    }
+
+    /** Advance the device's physics by dt seconds. */
+    abstract void step(double dt);
+
+    /**
+     * Handle a device call.  Return NOT_HANDLED to get the default for the method's return type.
+     */
+    abstract Object call(String method, Object[] args);
+
+    static final Object NOT_HANDLED = new Object();
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String methodName = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            switch (methodName) {
+                case "equals":   return proxy == args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                default:         return "Sim " + name;
+            }
+        }
+
+        calls++;
+        switch (methodName) {
+            case "getDeviceName":     return "Sim " + name;
+            case "getConnectionInfo": return "simulated";
+            case "getManufacturer":   return HardwareDevice.Manufacturer.Other;
+        }
+
+        Object result = call(methodName, args);
+        if (result != NOT_HANDLED) {
+            return result;
+        }
+        return defaultFor(method.getReturnType());
+    }
+
+    private static Object defaultFor(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class)     return 0;
+        if (type == long.class)    return 0L;
+        if (type == double.class)  return 0.0;
+        if (type == float.class)   return 0f;
+        if (type == short.class)   return (short) 0;
+        if (type == byte.class)    return (byte) 0;
+        if (type == char.class)    return (char) 0;
+        return null;
+    }
+}
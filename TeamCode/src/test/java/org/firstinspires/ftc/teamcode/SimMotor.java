@@ -0,0 +1,152 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.DcMotor;
+import com.qualcomm.robotcore.hardware.DcMotorSimple;
+
+/*
+ * Simulated DcMotorEx with a first-order speed model.
+ *
+ * The motor's speed approaches (applied power * free speed * battery / 12 V) with time constant tau, and
+ * the encoder integrates it.  The run modes behave roughly like a REV hub:
+ *   - RUN_WITHOUT_ENCODER: power is applied directly,
+ *   - RUN_USING_ENCODER:   setVelocity() (or power * free speed) is held as a target speed,
+ *   - RUN_TO_POSITION:     power is proportional to the position error, capped at |power|,
+ *   - STOP_AND_RESET_ENCODER: the encoder reads zero and the motor is off.
+ * Direction flips both the applied power and the reported encoder values, as on the real hardware.
+ */
+class SimMotor extends SimDevice {
+
+    // Power per tick of error in RUN_TO_POSITION, before capping at |power|
+    static final double POSITION_GAIN = 1.0 / 200;
+    static final int BUSY_TOLERANCE = 10;
+
+    private final double freeSpeed;   // ticks/s at full power and 12 V
+    private final double tau;         // seconds
+
+    private DcMotor.RunMode mode = DcMotor.RunMode.RUN_WITHOUT_ENCODER;
+    private DcMotorSimple.Direction direction = DcMotorSimple.Direction.FORWARD;
+    private DcMotor.ZeroPowerBehavior zeroPowerBehavior = DcMotor.ZeroPowerBehavior.BRAKE;
+    private double power = 0;
+    private double velocityTarget = 0;
+    private boolean velocityMode = false;
+    private int targetPosition = 0;
+
+    // Physical state, in the motor's own (forward) direction
+    private double position = 0;
+    private double speed = 0;
+    private double zeroOffset = 0;
+
+    private double voltage = 12.0;
+
+    SimMotor(String name, double freeSpeed, double tau) {
+        super(name);
+        this.freeSpeed = freeSpeed;
+        this.tau = tau;
+    }
+
+    void setBatteryVoltage(double volts) {
+        voltage = volts;
+    }
+
+    /** Signed speed in ticks/s as the robot code would read it. */
+    double reportedVelocity() {
+        return sign() * speed;
+    }
+
+    int reportedPosition() {
+        return (int) Math.round(sign() * (position - zeroOffset));
+    }
+
+    /** Knock the speed down by a fraction, e.g. when a flywheel fires a ball. */
+    void slowBy(double fraction) {
+        speed *= 1 - fraction;
+    }
+
+    @Override
+    void step(double dt) {
+        double applied;
+        switch (mode) {
+            case RUN_TO_POSITION:
+                double error = targetPosition - reportedPosition();
+                double limit = Math.abs(power);
+                applied = sign() * Math.max(-limit, Math.min(limit, error * POSITION_GAIN));
+                break;
+            case RUN_USING_ENCODER:
+                double target = velocityMode ? velocityTarget : power * freeSpeed;
+                applied = sign() * Math.max(-1, Math.min(1, target / freeSpeed)) * 12.0 / voltage;
+                break;
+            case STOP_AND_RESET_ENCODER:
+                applied = 0;
+                break;
+            default:
+                applied = sign() * power;
+                break;
+        }
+        applied = Math.max(-1, Math.min(1, applied));
+
+        double targetSpeed = applied * freeSpeed * voltage / 12.0;
+        if (applied == 0 && zeroPowerBehavior == DcMotor.ZeroPowerBehavior.FLOAT) {
+            // Coasting loses speed much more slowly than braking
+            speed += (targetSpeed - speed) * Math.min(1, dt / (tau * 5));
+        } else {
+            speed += (targetSpeed - speed) * Math.min(1, dt / tau);
+        }
+        position += speed * dt;
+    }
+
+    @Override
+    Object call(String method, Object[] args) {
+        switch (method) {
+            case "setPower":
+                power = (Double) args[0];
+                velocityMode = false;
+                return null;
+            case "getPower":
+                return power;
+            case "setVelocity":
+                velocityTarget = (Double) args[0];
+                velocityMode = true;
+                return null;
+            case "getVelocity":
+                return reportedVelocity();
+            case "setMode":
+                mode = (DcMotor.RunMode) args[0];
+                if (mode == DcMotor.RunMode.STOP_AND_RESET_ENCODER) {
+                    zeroOffset = position;
+                    power = 0;
+                    velocityMode = false;
+                }
+                return null;
+            case "getMode":
+                return mode;
+            case "setDirection":
+                direction = (DcMotorSimple.Direction) args[0];
+                return null;
+            case "getDirection":
+                return direction;
+            case "setZeroPowerBehavior":
+                zeroPowerBehavior = (DcMotor.ZeroPowerBehavior) args[0];
+                return null;
+            case "getZeroPowerBehavior":
+                return zeroPowerBehavior;
+            case "setTargetPosition":
+                targetPosition = (Integer) args[0];
+                return null;
+            case "getTargetPosition":
+                return targetPosition;
+            case "getCurrentPosition":
+                return reportedPosition();
+            case "isBusy":
+                return mode == DcMotor.RunMode.RUN_TO_POSITION
+                        && Math.abs(targetPosition - reportedPosition()) > BUSY_TOLERANCE;
+            case "isMotorEnabled":
+                return true;
+            default:
+                return NOT_HANDLED;
+        }
+    }
+
+    private double sign() {
+        return direction == DcMotorSimple.Direction.REVERSE ? -1 : 1;
+    }
+}
@@ -0,0 +1,242 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.ColorSensor;
+import com.qualcomm.robotcore.hardware.DcMotorEx;
+import com.qualcomm.robotcore.hardware.HardwareMap;
+import com.qualcomm.robotcore.hardware.Servo;
+import com.qualcomm.robotcore.hardware.VoltageSensor;
+
+import java.util.ArrayDeque;
+import java.util.function.BooleanSupplier;
+
+/*
+ * A headless Prometheus: a HardwareMap filled with simulated devices under the configuration names
+ * PrometheusHardware expects, plus a simple model of the balls moving through the robot.
+ *
+ *     SimRobot sim = new SimRobot();
+ *     PrometheusHardware robot = sim.hardware();   // timestamps come from the simulated clock
+ *     ...
+ *     sim.runUntil(kick::isIdle, 15.0, this::cycle);   // cycle, step CYCLE_SECONDS, repeat
+ *
+ * Time only moves in step(), so a control loop runs as fast as the JVM allows.  cycle(), runFor() and
+ * runUntil() run one control cycle and then step the simulation CYCLE_SECONDS, which is how the sim tests
+ * drive it; step() is there for anything else.
+ *
+ * Ball model: balls queued with feed() wait at the intake.  While the intake runs forward and an empty
+ * slot sits at the intake station for BALL_ENTRY_TIME, the next ball drops into it.  The color sensor looks
+ * at the slot at the intake station.  When the kicker is extended and a loaded slot sits at the kicker
+ * station, the ball is fired and the flywheels lose FLYWHEEL_SHOT_LOSS of their speed.
+ */
+class SimRobot {
+
+    // Simulated time per control cycle (200 Hz control loop)
+    static final double CYCLE_SECONDS = 0.005;
+
+    // Motor models: free speed (ticks/s at full power, 12 V) and time constant (s)
+    static final double DRIVE_FREE_SPEED = 312 / 60.0 * 537.7;
+    static final double DRIVE_TAU = 0.1;
+    static final double SPINDEXER_FREE_SPEED = 10000;  // Through Bore Encoder on the spindexer shaft
+    static final double SPINDEXER_TAU = 0.05;
+    static final double FLYWHEEL_FREE_SPEED = 2800;
+    static final double FLYWHEEL_TAU = 0.3;
+    static final double TURRET_FREE_SPEED = 2000;
+    static final double INTAKE_FREE_SPEED = 2800;
+
+    // A slot counts as lined up with a station within this many 60 degree steps
+    static final double ALIGN_TOLERANCE_STEPS = 0.1;
+    static final double BALL_ENTRY_TIME = 0.2;
+    static final double FLYWHEEL_SHOT_LOSS = 0.15;
+    static final double KICKER_FIRE_POSITION = 0.2; // Kicker position at which the ball leaves the slot
+
+    // Color sensor readings for an empty slot and each artifact
+    static final int[] EMPTY_RGB = { 20, 25, 22 };
+    static final int[] GREEN_RGB = { 40, 200, 110 };
+    static final int[] PURPLE_RGB = { 150, 60, 220 };
+
+    final SimMotor leftFront   = new SimMotor("left_front_drive", DRIVE_FREE_SPEED, DRIVE_TAU);
+    final SimMotor leftBack    = new SimMotor("left_back_drive", DRIVE_FREE_SPEED, DRIVE_TAU);
+    final SimMotor rightFront  = new SimMotor("right_front_drive", DRIVE_FREE_SPEED, DRIVE_TAU);
+    final SimMotor rightBack   = new SimMotor("right_back_drive", DRIVE_FREE_SPEED, DRIVE_TAU);
+    final SimMotor spindexer   = new SimMotor("spindexer", SPINDEXER_FREE_SPEED, SPINDEXER_TAU);
+    final SimMotor outtake1    = new SimMotor("outtake_motor1", FLYWHEEL_FREE_SPEED, FLYWHEEL_TAU);
+    final SimMotor outtake2    = new SimMotor("outtake_motor2", FLYWHEEL_FREE_SPEED, FLYWHEEL_TAU);
+    final SimMotor outtakeTurn = new SimMotor("outtake_turn", TURRET_FREE_SPEED, DRIVE_TAU);
+    final SimMotor intake      = new SimMotor("intake_motor", INTAKE_FREE_SPEED, DRIVE_TAU);
+    final SimServo kicker1     = new SimServo("kicker_1");
+    final SimServo kicker2     = new SimServo("kicker_2");
+    final SimColorSensor ballSensor = new SimColorSensor("ball_sensor");
+    final SimVoltageSensor battery  = new SimVoltageSensor("battery");
+
+    private final SimDevice[] devices = {
+            leftFront, leftBack, rightFront, rightBack, spindexer, outtake1, outtake2, outtakeTurn, intake,
+            kicker1, kicker2, ballSensor, battery
+    };
+
+    private final HardwareMap hardwareMap = new HardwareMap(null, null);
+    private long nanos = 1_000_000_000L;
+    private long cycles = 0;
+
+    // Balls waiting at the intake, in the slots, and fired
+    private final ArrayDeque<ArtifactColor> waiting = new ArrayDeque<>();
+    private final ArtifactColor[] slots = { ArtifactColor.NONE, ArtifactColor.NONE, ArtifactColor.NONE };
+    private final boolean[] loaded = new boolean[SpindexerSlots.SLOTS];
+    private double entryTimer = 0;
+    private final StringBuilder shots = new StringBuilder();
+    private int shotCount = 0;
+
+    SimRobot() {
+        for (SimMotor m : new SimMotor[] {
+                leftFront, leftBack, rightFront, rightBack, spindexer, outtake1, outtake2, outtakeTurn, intake }) {
+            hardwareMap.put(m.name(), m.proxy(DcMotorEx.class));
+        }
+        hardwareMap.put("kicker_1", kicker1.proxy(Servo.class));
+        hardwareMap.put("kicker_2", kicker2.proxy(Servo.class));
+        hardwareMap.put("ball_sensor", ballSensor.proxy(ColorSensor.class));
+        hardwareMap.voltageSensor.put("battery", battery.proxy(VoltageSensor.class));
+        updateColorSensor();
+    }
+
+    HardwareMap hardwareMap() {
+        return hardwareMap;
+    }
+
+    /** PrometheusHardware on this simulated robot, timestamped with the simulated clock. */
+    PrometheusHardware hardware() {
+        return new PrometheusHardware(hardwareMap, this::nanoTime);
+    }
+
+    long nanoTime() {
+        return nanos;
+    }
+
+    /** Queue a ball at the intake. */
+    void feed(ArtifactColor color) {
+        waiting.add(color);
+    }
+
+    /** Put balls straight into slots 0, 1, 2..., as loaded before a match. */
+    void preload(ArtifactColor... colors) {
+        for (int slot = 0; slot < colors.length; slot++) {
+            slots[slot] = colors[slot];
+            loaded[slot] = true;
+        }
+        updateColorSensor();
+    }
+
+    /** Colors fired so far, one letter each (G / P / ?), in order. */
+    String shots() {
+        return shots.toString();
+    }
+
+    int shotCount() {
+        return shotCount;
+    }
+
+    /** Calls made to every simulated device so far. */
+    long hardwareCalls() {
+        long total = 0;
+        for (SimDevice d : devices) {
+            total += d.calls();
+        }
+        return total;
+    }
+
+    /** Run one control cycle, then advance the simulation CYCLE_SECONDS. */
+    void cycle(Runnable body) {
+        body.run();
+        cycles++;
+        step(CYCLE_SECONDS);
+    }
+
+    /** Run control cycles for this much simulated time. */
+    void runFor(double seconds, Runnable body) {
+        int limit = (int) Math.round(seconds / CYCLE_SECONDS);
+        for (int i = 0; i < limit; i++) {
+            cycle(body);
+        }
+    }
+
+    /**
+     * Run control cycles until done is true, or for at most timeout seconds of simulated time.
+     * @return the simulated seconds run
+     */
+    double runUntil(BooleanSupplier done, double timeout, Runnable body) {
+        int limit = (int) Math.round(timeout / CYCLE_SECONDS);
+        int count = 0;
+        while (count < limit && !done.getAsBoolean()) {
+            cycle(body);
+            count++;
+        }
+        return count * CYCLE_SECONDS;
+    }
+
+    /** Control cycles run with cycle(), runFor() and runUntil() so far. */
+    long cycles() {
+        return cycles;
+    }
+
+    /** Advance time and physics by dt seconds. */
+    void step(double dt) {
+        nanos += (long) (dt * 1e9);
+        double volts = battery.voltage();
+        for (SimDevice d : devices) {
+            if (d instanceof SimMotor) {
+                ((SimMotor) d).setBatteryVoltage(volts);
+            }
+            d.step(dt);
+        }
+        stepBalls(dt);
+        updateColorSensor();
+    }
+
+    private void stepBalls(double dt) {
+        // Intake: the next ball drops into an empty slot that has been lined up for a moment
+        int intakeSlot = alignedSlot(SpindexerSlots.INTAKE_STEP);
+        if (intake.reportedVelocity() > INTAKE_FREE_SPEED / 2 && intakeSlot >= 0 && !loaded[intakeSlot]
+                && !waiting.isEmpty()) {
+            entryTimer += dt;
+            if (entryTimer >= BALL_ENTRY_TIME) {
+                slots[intakeSlot] = waiting.poll();
+                loaded[intakeSlot] = true;
+                entryTimer = 0;
+            }
+        } else {
+            entryTimer = 0;
+        }
+
+        // Kicker: an extended kicker fires whatever is in the slot in front of it
+        int kickerSlot = alignedSlot(SpindexerSlots.KICKER_STEP);
+        double kickerPosition = Math.min(kicker1.actualPosition(), kicker2.actualPosition());
+        if (kickerPosition >= KICKER_FIRE_POSITION && kickerSlot >= 0 && loaded[kickerSlot]) {
+            ArtifactColor color = slots[kickerSlot];
+            shots.append(color == ArtifactColor.GREEN ? 'G' : color == ArtifactColor.PURPLE ? 'P' : '?');
+            shotCount++;
+            slots[kickerSlot] = ArtifactColor.NONE;
+            loaded[kickerSlot] = false;
+            outtake1.slowBy(FLYWHEEL_SHOT_LOSS);
+            outtake2.slowBy(FLYWHEEL_SHOT_LOSS);
+        }
+    }
+
+    private void updateColorSensor() {
+        int slot = alignedSlot(SpindexerSlots.INTAKE_STEP);
+        int[] rgb = EMPTY_RGB;
+        if (slot >= 0 && loaded[slot]) {
+            rgb = slots[slot] == ArtifactColor.PURPLE ? PURPLE_RGB : GREEN_RGB;
+        }
+        ballSensor.setColor(rgb[0], rgb[1], rgb[2]);
+    }
+
+    /** The slot physically lined up with a station, or -1. */
+    private int alignedSlot(int station) {
+        double steps = spindexer.reportedPosition() * SpindexerSlots.STEPS_PER_REV / Spindexer.TICKS_PER_REV;
+        for (int slot = 0; slot < SpindexerSlots.SLOTS; slot++) {
+            double offset = station - (2 * slot + steps);
+            offset -= SpindexerSlots.STEPS_PER_REV * Math.floor(offset / SpindexerSlots.STEPS_PER_REV + 0.5);
+            if (Math.abs(offset) <= ALIGN_TOLERANCE_STEPS) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,55 @@
+package org.firstinspires.ftc.teamcode;
+
+import com.qualcomm.robotcore.hardware.Servo;
+
+/*
+ * Simulated Servo.  getPosition() returns the commanded position, like the SDK does; the horn itself
+ * moves towards it at SLEW_RATE, and SimRobot uses that actual position for its physics.
+ */
+class SimServo extends SimDevice {
+
+    // Full range per second
+    static final double SLEW_RATE = 4.0;
+
+    private Servo.Direction direction = Servo.Direction.FORWARD;
+    private double commanded = 0;
+    private double actual = 0;
+    private boolean enabled = false;
+
+    SimServo(String name) {
+        super(name);
+    }
+
+    /** Where the horn really is, in the same 0..1 units as setPosition(). */
+    double actualPosition() {
+        return actual;
+    }
+
+    @Override
+    void step(double dt) {
+        if (!enabled) {
+            return;
+        }
+        double maxStep = SLEW_RATE * dt;
+        actual += Math.max(-maxStep, Math.min(maxStep, commanded - actual));
+    }
+
+    @Override
+    Object call(String method, Object[] args) {
+        switch (method) {
+            case "setPosition":
+                commanded = Math.max(Servo.MIN_POSITION, Math.min(Servo.MAX_POSITION, (Double) args[0]));
+                enabled = true;
+                return null;
+            case "getPosition":
+                return commanded;
+            case "setDirection":
+                direction = (Servo.Direction) args[0];
+                return null;
+            case "getDirection":
+                return direction;
+            default:
+                return NOT_HANDLED;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.firstinspires.ftc.teamcode;
+
+/*
+ * Simulated battery voltage sensor.  Set a lower voltage to try a tired battery.
+ */
+class SimVoltageSensor extends SimDevice {
+
+    private double voltage = 12.5;
+
+    SimVoltageSensor(String name) {
+        super(name);
+    }
+
+    double voltage() {
+        return voltage;
+    }
+
+    void setVoltage(double volts) {
+        voltage = volts;
+    }
+
+    @Override
+    void step(double dt) {
+    }
+
+    @Override
+    Object call(String method, Object[] args) {
+        return method.equals("getVoltage") ? voltage : NOT_HANDLED;
+    }
+}